@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resources;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
+import org.gradle.internal.UncheckedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.lock;
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock;
+
+/**
+ * Acquires and releases a few exclusive locks from many threads at the same time, which makes most threads wait for a lock that is held by another thread.
+ *
+ * Compares the coordination service, which only wakes the threads waiting for a released lock, with a coordination service that wakes all waiting threads
+ * whenever a lock is released.
+ */
+@Fork(1)
+@Threads(32)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ResourceLockCoordinationBenchmark {
+    private static final Action<ResourceLock> NO_OP = new Action<ResourceLock>() {
+        @Override
+        public void execute(ResourceLock resourceLock) {
+        }
+    };
+
+    @Param({"notifyAll", "per-lock"})
+    String wakeUps;
+
+    @Param({"4"})
+    int lockCount;
+
+    ResourceLockCoordinationService coordinationService;
+    List<ResourceLock> locks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        coordinationService = wakeUps.equals("notifyAll") ? new NotifyAllCoordinationService() : new DefaultResourceLockCoordinationService();
+        locks = Lists.newArrayList();
+        for (int i = 0; i < lockCount; i++) {
+            locks.add(new ExclusiveAccessResourceLock("lock" + i, coordinationService, NO_OP, NO_OP));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final Random random = new Random();
+    }
+
+    @Benchmark
+    public void lockAndUnlock(ThreadState state) {
+        ResourceLock resourceLock = locks.get(state.random.nextInt(locks.size()));
+        coordinationService.withStateLock(lock(resourceLock));
+        Blackhole.consumeCPU(100);
+        coordinationService.withStateLock(unlock(resourceLock));
+    }
+
+    /**
+     * Coordinates changes to the state of resource locks with a single monitor, and wakes all waiting threads when any lock is released.
+     */
+    private static class NotifyAllCoordinationService implements ResourceLockCoordinationService {
+        private final Object lock = new Object();
+        private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
+            @Override
+            protected List<ResourceLockState> initialValue() {
+                return Lists.newArrayList();
+            }
+        };
+
+        @Override
+        public ResourceLockState getCurrent() {
+            List<ResourceLockState> states = currentState.get();
+            return states.isEmpty() ? null : states.get(states.size() - 1);
+        }
+
+        @Override
+        public boolean withStateLock(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+            while (true) {
+                TrackingState state = new TrackingState();
+                synchronized (lock) {
+                    currentState.get().add(state);
+                    try {
+                        switch (stateLockAction.transform(state)) {
+                            case RETRY:
+                                state.releaseLocks();
+                                lock.wait();
+                                break;
+                            case FINISHED:
+                                if (state.unlocked) {
+                                    lock.notifyAll();
+                                }
+                                return true;
+                            default:
+                                state.releaseLocks();
+                                return false;
+                        }
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        currentState.get().remove(state);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void notifyStateChange() {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static class TrackingState implements ResourceLockState {
+        final List<ResourceLock> locked = Lists.newArrayList();
+        boolean unlocked;
+
+        @Override
+        public void registerLocked(ResourceLock resourceLock) {
+            locked.add(resourceLock);
+        }
+
+        @Override
+        public void registerUnlocked(ResourceLock resourceLock) {
+            unlocked = true;
+        }
+
+        @Override
+        public void releaseLocks() {
+            for (ResourceLock resourceLock : locked) {
+                resourceLock.unlock();
+            }
+            locked.clear();
+            unlocked = false;
+        }
+    }
+}
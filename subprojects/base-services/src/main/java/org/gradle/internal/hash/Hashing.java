@@ -34,6 +34,8 @@ public class Hashing {
 
     private static final HashFunction SHA1 = MessageDigestHashFunction.of("SHA-1");
 
+    private static final HashFunction MURMUR3_128 = new Murmur3HashFunction();
+
     public static HashFunction md5() {
         return MD5;
     }
@@ -42,6 +44,16 @@ public class Hashing {
         return SHA1;
     }
 
+    /**
+     * A fast, non-cryptographic 128-bit hash function (the x64 variant of MurmurHash3 with a seed of 0).
+     * It produces the same hash codes as Guava's {@code Hashing.murmur3_128()}.
+     *
+     * Only use this where hash codes are compared locally and a deliberately crafted collision is not a concern.
+     */
+    public static HashFunction murmur3_128() {
+        return MURMUR3_128;
+    }
+
     private static abstract class MessageDigestHashFunction implements HashFunction {
         public static MessageDigestHashFunction of(String algorithm) {
             MessageDigest prototype;
@@ -195,4 +207,201 @@ public class Hashing {
             putBytes(hashCode.getBytes());
         }
     }
+
+    private static class Murmur3HashFunction implements HashFunction {
+        @Override
+        public Hasher newHasher() {
+            return new Murmur3Hasher();
+        }
+
+        @Override
+        public HashCode hashBytes(byte[] bytes) {
+            Hasher hasher = newHasher();
+            hasher.putBytes(bytes);
+            return hasher.hash();
+        }
+
+        @Override
+        public HashCode hashString(CharSequence string) {
+            Hasher hasher = newHasher();
+            hasher.putString(string);
+            return hasher.hash();
+        }
+    }
+
+    /**
+     * Consumes the input in 16 byte blocks, buffering partial blocks between calls.
+     */
+    private static class Murmur3Hasher implements Hasher {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE + 8).order(ByteOrder.LITTLE_ENDIAN);
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher");
+            }
+        }
+
+        @Override
+        public void putByte(byte b) {
+            checkNotDone();
+            buffer.put(b);
+            flushBlock();
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            int end = off + len;
+            int pos = off;
+            if (buffer.position() > 0) {
+                int fill = Math.min(BLOCK_SIZE - buffer.position(), len);
+                buffer.put(bytes, pos, fill);
+                pos += fill;
+                flushBlock();
+            }
+            while (end - pos >= BLOCK_SIZE) {
+                bmix64(getLongLittleEndian(bytes, pos), getLongLittleEndian(bytes, pos + 8));
+                pos += BLOCK_SIZE;
+            }
+            buffer.put(bytes, pos, end - pos);
+        }
+
+        @Override
+        public void putInt(int value) {
+            checkNotDone();
+            buffer.putInt(value);
+            flushBlock();
+        }
+
+        @Override
+        public void putLong(long value) {
+            checkNotDone();
+            buffer.putLong(value);
+            flushBlock();
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            putBytes(hashCode.getBytes());
+        }
+
+        private void flushBlock() {
+            if (buffer.position() >= BLOCK_SIZE) {
+                bmix64(buffer.getLong(0), buffer.getLong(8));
+                int remaining = buffer.position() - BLOCK_SIZE;
+                for (int i = 0; i < remaining; i++) {
+                    buffer.put(i, buffer.get(BLOCK_SIZE + i));
+                }
+                buffer.position(remaining);
+            }
+        }
+
+        private void bmix64(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+
+            length += BLOCK_SIZE;
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            int remaining = buffer.position();
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = remaining - 1; i >= 0; i--) {
+                long b = buffer.get(i) & 0xffL;
+                if (i >= 8) {
+                    k2 = (k2 << 8) | b;
+                } else {
+                    k1 = (k1 << 8) | b;
+                }
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            length += remaining;
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+            return HashCode.fromBytesNoCopy(bytes);
+        }
+
+        private static long getLongLittleEndian(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xffL)
+                | (bytes[offset + 1] & 0xffL) << 8
+                | (bytes[offset + 2] & 0xffL) << 16
+                | (bytes[offset + 3] & 0xffL) << 24
+                | (bytes[offset + 4] & 0xffL) << 32
+                | (bytes[offset + 5] & 0xffL) << 40
+                | (bytes[offset + 6] & 0xffL) << 48
+                | (bytes[offset + 7] & 0xffL) << 56;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
 }
@@ -17,16 +17,29 @@
 package org.gradle.internal.resources;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.gradle.api.Transformer;
 import org.gradle.internal.UncheckedException;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Coordinates changes to the state of resource locks, so that only one thread changes the state at a time.
+ *
+ * <p>Each thread waiting for the state to change waits on its own monitor. A thread that is only waiting to acquire an exclusive lock
+ * is woken when that lock is released. Other waiting threads are woken whenever a lock is released.</p>
+ */
 public class DefaultResourceLockCoordinationService implements ResourceLockCoordinationService {
     private final Object lock = new Object();
+    private final List<Waiter> waiters = new ArrayList<Waiter>();
+    private final Map<ResourceLock, List<Waiter>> waitersByLock = Maps.newHashMap();
+    private int nestedWaiters;
     private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
         @Override
         protected List<ResourceLockState> initialValue() {
@@ -39,6 +52,7 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         while (true) {
             DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
             ResourceLockState.Disposition disposition;
+            Waiter waiter = null;
             synchronized (lock) {
                 try {
                     currentState.get().add(resourceLockState);
@@ -47,10 +61,19 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                     switch (disposition) {
                         case RETRY:
                             resourceLockState.releaseLocks();
-                            try {
-                                lock.wait();
-                            } catch (InterruptedException e) {
-                                throw UncheckedException.throwAsUncheckedException(e);
+                            maybeNotifyStateChange(resourceLockState);
+                            if (currentState.get().size() > 1) {
+                                // Nested in another transform, so wait on the state lock to release it entirely
+                                nestedWaiters++;
+                                try {
+                                    lock.wait();
+                                } catch (InterruptedException e) {
+                                    throw UncheckedException.throwAsUncheckedException(e);
+                                } finally {
+                                    nestedWaiters--;
+                                }
+                            } else {
+                                waiter = addWaiter(resourceLockState.blockingLock);
                             }
                             break;
                         case FINISHED:
@@ -58,6 +81,7 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                             return true;
                         case FAILED:
                             resourceLockState.releaseLocks();
+                            maybeNotifyStateChange(resourceLockState);
                             return false;
                         default:
                             throw new IllegalArgumentException("Unhandled disposition type: " + disposition.name());
@@ -69,6 +93,43 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                     currentState.get().remove(resourceLockState);
                 }
             }
+            if (waiter != null) {
+                awaitStateChange(waiter);
+            }
+        }
+    }
+
+    /**
+     * Adds a waiter that is woken when the given lock is released, or when any lock is released when no lock is given.
+     */
+    private Waiter addWaiter(@Nullable ResourceLock blockingLock) {
+        List<Waiter> queue;
+        if (blockingLock == null) {
+            queue = waiters;
+        } else {
+            queue = waitersByLock.get(blockingLock);
+            if (queue == null) {
+                queue = new ArrayList<Waiter>();
+                waitersByLock.put(blockingLock, queue);
+            }
+        }
+        Waiter waiter = new Waiter(queue);
+        queue.add(waiter);
+        return waiter;
+    }
+
+    private void awaitStateChange(Waiter waiter) {
+        try {
+            synchronized (waiter) {
+                while (!waiter.woken) {
+                    waiter.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (lock) {
+                waiter.queue.remove(waiter);
+            }
+            throw UncheckedException.throwAsUncheckedException(e);
         }
     }
 
@@ -84,19 +145,53 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
 
     private void maybeNotifyStateChange(DefaultResourceLockState resourceLockState) {
         if (resourceLockState.hasUnlockedResources()) {
-            notifyStateChange();
+            wakeAll(waiters);
+            for (ResourceLock resourceLock : resourceLockState.unlockedResources) {
+                List<Waiter> lockWaiters = waitersByLock.remove(resourceLock);
+                if (lockWaiters != null) {
+                    wakeAll(lockWaiters);
+                }
+            }
+            if (nestedWaiters > 0) {
+                lock.notifyAll();
+            }
         }
     }
 
     public void notifyStateChange() {
         synchronized (lock) {
+            wakeAll(waiters);
+            for (List<Waiter> lockWaiters : waitersByLock.values()) {
+                wakeAll(lockWaiters);
+            }
+            waitersByLock.clear();
             lock.notifyAll();
         }
     }
 
+    private static void wakeAll(List<Waiter> waiters) {
+        for (Waiter waiter : waiters) {
+            synchronized (waiter) {
+                waiter.woken = true;
+                waiter.notify();
+            }
+        }
+        waiters.clear();
+    }
+
+    private static class Waiter {
+        final List<Waiter> queue;
+        boolean woken;
+
+        Waiter(List<Waiter> queue) {
+            this.queue = queue;
+        }
+    }
+
     private static class DefaultResourceLockState implements ResourceLockState {
         private Set<ResourceLock> lockedResources;
         private Set<ResourceLock> unlockedResources;
+        private ResourceLock blockingLock;
         boolean rollback;
 
         @Override
@@ -193,7 +288,15 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
             for (ResourceLock resourceLock : resourceLocks) {
                 if (!resourceLock.tryLock()) {
-                    return blocking ? ResourceLockState.Disposition.RETRY : ResourceLockState.Disposition.FAILED;
+                    if (!blocking) {
+                        return ResourceLockState.Disposition.FAILED;
+                    }
+                    // Only an exclusive lock is known to stay unavailable until it is released. Other locks, such as worker leases, can become
+                    // available when some other lock is released.
+                    if (resourceLock instanceof ExclusiveAccessResourceLock && resourceLockState instanceof DefaultResourceLockState) {
+                        ((DefaultResourceLockState) resourceLockState).blockingLock = resourceLock;
+                    }
+                    return ResourceLockState.Disposition.RETRY;
                 }
             }
             return ResourceLockState.Disposition.FINISHED;
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import com.google.common.hash.Hashing as GuavaHashing
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Unroll
+class HashingTest extends Specification {
+    def "murmur3 hashes #length bytes like the reference implementation"() {
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+
+        expect:
+        Hashing.murmur3_128().hashBytes(bytes).toString() == GuavaHashing.murmur3_128().hashBytes(bytes).toString()
+
+        where:
+        length << [0, 1, 7, 8, 9, 15, 16, 17, 31, 32, 33, 1000, 8192]
+    }
+
+    def "murmur3 hash does not depend on how the input is split up"() {
+        def bytes = new byte[100]
+        new Random(1234L).nextBytes(bytes)
+        def hasher = Hashing.murmur3_128().newHasher()
+
+        when:
+        hasher.putBytes(bytes, 0, 3)
+        hasher.putBytes(bytes, 3, 20)
+        hasher.putByte(bytes[23])
+        hasher.putBytes(bytes, 24, 76)
+
+        then:
+        hasher.hash() == Hashing.murmur3_128().hashBytes(bytes)
+    }
+
+    def "murmur3 hashes primitives like the reference implementation"() {
+        def hasher = Hashing.murmur3_128().newHasher()
+        def reference = GuavaHashing.murmur3_128().newHasher()
+
+        when:
+        hasher.putInt(42)
+        hasher.putString("abc")
+        hasher.putLong(1234567890123L)
+        hasher.putBoolean(true)
+        hasher.putDouble(1.5d)
+        reference.putInt(42)
+        reference.putBytes("abc".getBytes("UTF-8"))
+        reference.putLong(1234567890123L)
+        reference.putBoolean(true)
+        reference.putDouble(1.5d)
+
+        then:
+        hasher.hash().toString() == reference.hash().toString()
+    }
+
+    def "hasher cannot be reused"() {
+        def hasher = Hashing.murmur3_128().newHasher()
+        hasher.hash()
+
+        when:
+        hasher.putInt(1)
+
+        then:
+        thrown IllegalStateException
+    }
+}
@@ -108,6 +108,45 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         lock2.lockedState
     }
 
+    def "only retries a lock action blocked on an exclusive lock when that lock is released"() {
+        def lock1 = new ExclusiveAccessResourceLock("lock1", coordinationService, Mock(Action), Mock(Action))
+        def lock2 = new ExclusiveAccessResourceLock("lock2", coordinationService, Mock(Action), Mock(Action))
+        def count = 0
+
+        when:
+        async {
+            coordinationService.withStateLock(lock(lock1, lock2))
+
+            start {
+                coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                    @Override
+                    ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                        try {
+                            return lock(lock1).transform(resourceLockState)
+                        } finally {
+                            count++
+                            instant."executed${count}"
+                        }
+                    }
+                })
+                assert lock1.doIsLockedByCurrentThread()
+            }
+
+            thread.blockUntil.executed1
+            coordinationService.withStateLock(unlock(lock2))
+            thread.block()
+            assert count == 1
+
+            coordinationService.withStateLock(unlock(lock1))
+            thread.blockUntil.executed2
+        }
+
+        then:
+        count == 2
+        lock1.doIsLocked()
+        !lock2.doIsLocked()
+    }
+
     def "can nest multiple calls to withStateLock"() {
         def lock = [
             resourceLock("lock1"),
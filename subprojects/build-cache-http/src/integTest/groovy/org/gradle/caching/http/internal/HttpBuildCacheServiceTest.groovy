@@ -163,6 +163,37 @@ class HttpBuildCacheServiceTest extends Specification {
         !fromCache
     }
 
+    def "checks for existing entry with a HEAD request"() {
+        def srcFile = tempDir.file("cached.zip")
+        srcFile.text = "Data"
+        server.expectHead("/cache/${key.hashCode}", srcFile)
+
+        expect:
+        (cache as HttpBuildCacheService).contains(key)
+    }
+
+    def "checks for missing entry with a HEAD request"() {
+        server.expectHeadMissing("/cache/${key.hashCode}")
+
+        expect:
+        !(cache as HttpBuildCacheService).contains(key)
+    }
+
+    def "existence check reports recoverable error on http code #httpCode"(int httpCode) {
+        expectError(httpCode, 'HEAD')
+
+        when:
+        (cache as HttpBuildCacheService).contains(key)
+
+        then:
+        BuildCacheException exception = thrown()
+
+        exception.message.startsWith("Checking entry at '${server.uri}/cache/${key.hashCode}' response status ${httpCode}")
+
+        where:
+        httpCode << [HttpStatus.SC_INTERNAL_SERVER_ERROR, HttpStatus.SC_SERVICE_UNAVAILABLE]
+    }
+
     def "load reports recoverable error on http code #httpCode"(int httpCode) {
         expectError(httpCode, 'GET')
 
@@ -25,6 +25,7 @@ import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.AbstractHttpEntity;
@@ -33,7 +34,7 @@ import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
-import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.ExistenceCheckingBuildCacheService;
 import org.gradle.caching.internal.tasks.TaskOutputPacker;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
@@ -52,7 +53,7 @@ import java.util.Set;
 /**
  * Build cache implementation that delegates to a service accessible via HTTP.
  */
-public class HttpBuildCacheService implements BuildCacheService {
+public class HttpBuildCacheService implements ExistenceCheckingBuildCacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCacheService.class);
     static final String BUILD_CACHE_CONTENT_TYPE = "application/vnd.gradle.build-cache-artifact.v" + TaskOutputPacker.CACHE_ENTRY_FORMAT;
 
@@ -115,6 +116,40 @@ public class HttpBuildCacheService implements BuildCacheService {
         }
     }
 
+    @Override
+    public boolean contains(BuildCacheKey key) throws BuildCacheException {
+        final URI uri = root.resolve("./" + key.getHashCode());
+        HttpHead httpHead = new HttpHead(uri);
+        httpHead.addHeader(HttpHeaders.ACCEPT, BUILD_CACHE_CONTENT_TYPE + ", */*");
+        addDiagnosticHeaders(httpHead);
+
+        CloseableHttpResponse response = null;
+        try {
+            response = httpClientHelper.performHttpRequest(httpHead);
+            StatusLine statusLine = response.getStatusLine();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Response for HEAD {}: {}", safeUri(uri), statusLine);
+            }
+            int statusCode = statusLine.getStatusCode();
+            if (isHttpSuccess(statusCode)) {
+                return true;
+            } else if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                return false;
+            } else {
+                String defaultMessage = String.format("Checking entry at '%s' response status %d: %s", safeUri(uri), statusCode, statusLine.getReasonPhrase());
+                if (isRedirect(statusCode)) {
+                    return handleRedirect(uri, response, statusCode, defaultMessage, "checking entry at");
+                } else {
+                    return throwHttpStatusCodeException(statusCode, defaultMessage);
+                }
+            }
+        } catch (IOException e) {
+            throw new BuildCacheException(String.format("Unable to check entry at '%s': %s", safeUri(uri), e.getMessage()), e);
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+        }
+    }
+
     private boolean handleRedirect(URI uri, CloseableHttpResponse response, int statusCode, String defaultMessage, String action) {
         final Header locationHeader = response.getFirstHeader("location");
         if (locationHeader == null) {
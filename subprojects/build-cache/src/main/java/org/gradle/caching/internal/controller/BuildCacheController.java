@@ -16,6 +16,7 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 
 import javax.annotation.Nullable;
@@ -33,6 +34,17 @@ public interface BuildCacheController extends Closeable {
 
     void store(BuildCacheStoreCommand command);
 
+    /**
+     * Starts checking in the background whether the remote build cache has an entry for the given key,
+     * so that a later {@link #load(BuildCacheLoadCommand)} of an entry the remote build cache does not have makes no request.
+     */
+    void checkRemoteExists(BuildCacheKey key);
+
+    /**
+     * Discards the result of checking the remote build cache for the given key, if it has not been used by a load.
+     */
+    void discardRemoteExistenceCheck(BuildCacheKey key);
+
     @Override
     void close();
 
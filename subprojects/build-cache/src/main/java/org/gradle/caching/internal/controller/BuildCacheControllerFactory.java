@@ -29,6 +29,7 @@ import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperation
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
 import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.CallableBuildOperation;
@@ -58,6 +59,7 @@ public final class BuildCacheControllerFactory {
 
     public static BuildCacheController create(
         final BuildOperationExecutor buildOperationExecutor,
+        final ExecutorFactory executorFactory,
         final Path buildIdentityPath,
         final File gradleUserHomeDir,
         final BuildCacheConfigurationInternal buildCacheConfiguration,
@@ -113,6 +115,7 @@ public final class BuildCacheControllerFactory {
                     return new DefaultBuildCacheController(
                         config,
                         buildOperationExecutor,
+                        executorFactory,
                         gradleUserHomeDir,
                         logStackTraces
                     );
@@ -23,15 +23,18 @@ import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.ExistenceCheckingBuildCacheService;
 import org.gradle.caching.internal.controller.operations.PackOperationDetails;
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
 import org.gradle.caching.internal.controller.operations.UnpackOperationResult;
+import org.gradle.caching.internal.controller.service.AsyncStoreBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BaseBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
 import org.gradle.caching.internal.controller.service.DefaultLocalBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.ExistenceCheckingBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.LoadTarget;
 import org.gradle.caching.internal.controller.service.LocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.NullBuildCacheServiceHandle;
@@ -43,6 +46,7 @@ import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.RunnableBuildOperation;
@@ -58,6 +62,21 @@ import java.io.InputStream;
 
 public class DefaultBuildCacheController implements BuildCacheController {
 
+    /**
+     * When set, entries are stored in the remote build cache in the background.
+     */
+    public static final String ASYNC_REMOTE_STORE_PROPERTY = "org.gradle.internal.caching.remote.async-store";
+    public static final String ASYNC_REMOTE_STORE_CONCURRENCY_PROPERTY = "org.gradle.internal.caching.remote.async-store.concurrency";
+    public static final String ASYNC_REMOTE_STORE_QUEUE_SIZE_PROPERTY = "org.gradle.internal.caching.remote.async-store.queue-size";
+
+    /**
+     * When set, the remote build cache is checked in the background for entries as soon as their keys are known,
+     * so that loading an entry the remote build cache does not have makes no request.
+     */
+    public static final String REMOTE_EXISTENCE_CHECK_PROPERTY = "org.gradle.internal.caching.remote.existence-check";
+    public static final String REMOTE_EXISTENCE_CHECK_CONCURRENCY_PROPERTY = "org.gradle.internal.caching.remote.existence-check.concurrency";
+    public static final String REMOTE_EXISTENCE_CHECK_QUEUE_SIZE_PROPERTY = "org.gradle.internal.caching.remote.existence-check.queue-size";
+
     @VisibleForTesting
     final BuildCacheServiceHandle legacyLocal;
 
@@ -67,6 +86,9 @@ public class DefaultBuildCacheController implements BuildCacheController {
     @VisibleForTesting
     final LocalBuildCacheServiceHandle local;
 
+    @Nullable
+    private final ExistenceCheckingBuildCacheServiceHandle existenceCheckingRemote;
+
     private final BuildCacheTempFileStore tmp;
     private final BuildOperationExecutor buildOperationExecutor;
 
@@ -77,6 +99,20 @@ public class DefaultBuildCacheController implements BuildCacheController {
         BuildOperationExecutor buildOperationExecutor,
         File gradleUserHomeDir,
         boolean logStackTraces
+    ) {
+        this(config, buildOperationExecutor, null, gradleUserHomeDir, logStackTraces);
+    }
+
+    /**
+     * Creates a controller that stores entries in the remote build cache in the background when {@link #ASYNC_REMOTE_STORE_PROPERTY} is set,
+     * and checks the remote build cache for entries ahead of loading them when {@link #REMOTE_EXISTENCE_CHECK_PROPERTY} is set.
+     */
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationExecutor buildOperationExecutor,
+        @Nullable ExecutorFactory executorFactory,
+        File gradleUserHomeDir,
+        boolean logStackTraces
     ) {
         this.buildOperationExecutor = buildOperationExecutor;
 
@@ -91,7 +127,29 @@ public class DefaultBuildCacheController implements BuildCacheController {
             this.tmp = new DefaultBuildCacheTempFileStore(new File(gradleUserHomeDir, "build-cache-tmp"));
         }
 
-        this.remote = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        BuildCacheServiceHandle remoteHandle = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        if (executorFactory != null && config.remote != null && Boolean.getBoolean(ASYNC_REMOTE_STORE_PROPERTY)) {
+            remoteHandle = new AsyncStoreBuildCacheServiceHandle(
+                remoteHandle,
+                buildOperationExecutor,
+                executorFactory,
+                Integer.getInteger(ASYNC_REMOTE_STORE_CONCURRENCY_PROPERTY, 2),
+                Integer.getInteger(ASYNC_REMOTE_STORE_QUEUE_SIZE_PROPERTY, 16)
+            );
+        }
+        if (executorFactory != null && config.remote instanceof ExistenceCheckingBuildCacheService && Boolean.getBoolean(REMOTE_EXISTENCE_CHECK_PROPERTY)) {
+            this.existenceCheckingRemote = new ExistenceCheckingBuildCacheServiceHandle(
+                remoteHandle,
+                (ExistenceCheckingBuildCacheService) config.remote,
+                executorFactory,
+                Integer.getInteger(REMOTE_EXISTENCE_CHECK_CONCURRENCY_PROPERTY, 4),
+                Integer.getInteger(REMOTE_EXISTENCE_CHECK_QUEUE_SIZE_PROPERTY, 64)
+            );
+            remoteHandle = existenceCheckingRemote;
+        } else {
+            this.existenceCheckingRemote = null;
+        }
+        this.remote = remoteHandle;
     }
 
     @Nullable
@@ -259,6 +317,20 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
     }
 
+    @Override
+    public void checkRemoteExists(BuildCacheKey key) {
+        if (existenceCheckingRemote != null && !closed) {
+            existenceCheckingRemote.checkExists(key);
+        }
+    }
+
+    @Override
+    public void discardRemoteExistenceCheck(BuildCacheKey key) {
+        if (existenceCheckingRemote != null) {
+            existenceCheckingRemote.discard(key);
+        }
+    }
+
     @Override
     public void close() {
         if (!closed) {
@@ -16,6 +16,8 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
+
 public class NoOpBuildCacheController implements BuildCacheController {
 
     public static final BuildCacheController INSTANCE = new NoOpBuildCacheController();
@@ -33,6 +35,16 @@ public class NoOpBuildCacheController implements BuildCacheController {
 
     }
 
+    @Override
+    public void checkRemoteExists(BuildCacheKey key) {
+
+    }
+
+    @Override
+    public void discardRemoteExistenceCheck(BuildCacheKey key) {
+
+    }
+
     @Override
     public void close() {
 
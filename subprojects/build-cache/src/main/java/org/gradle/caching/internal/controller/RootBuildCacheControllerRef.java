@@ -16,6 +16,8 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
+
 import javax.annotation.Nullable;
 
 public class RootBuildCacheControllerRef {
@@ -59,6 +61,16 @@ public class RootBuildCacheControllerRef {
             delegate.store(command);
         }
 
+        @Override
+        public void checkRemoteExists(BuildCacheKey key) {
+            delegate.checkRemoteExists(key);
+        }
+
+        @Override
+        public void discardRemoteExistenceCheck(BuildCacheKey key) {
+            delegate.discardRemoteExistenceCheck(key);
+        }
+
         @Override
         public void close() {
         }
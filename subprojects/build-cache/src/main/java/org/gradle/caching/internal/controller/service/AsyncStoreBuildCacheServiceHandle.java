@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.controller.operations.QueuedStoreOperationDetails;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores entries in the remote build cache in the background, so that tasks don't have to wait for their outputs to be uploaded.
+ *
+ * <p>At most {@code queueSize} stores are queued or being uploaded at any time. When the queue is full, the entry is stored right away instead
+ * of waiting for a slot, as the caller may hold the lock of the local build cache. An entry that is already queued is not queued again.
+ * Closing the handle waits for all queued stores to finish.</p>
+ *
+ * <p>As the packed entry is deleted once the store returns, the queued store keeps its own link to or copy of the file.</p>
+ */
+@SuppressWarnings("Since15")
+public class AsyncStoreBuildCacheServiceHandle implements BuildCacheServiceHandle {
+
+    private static final Logger LOGGER = Logging.getLogger(AsyncStoreBuildCacheServiceHandle.class);
+
+    private final BuildCacheServiceHandle delegate;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ManagedExecutor executor;
+    private final Semaphore queueSlots;
+    private final Set<String> queuedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    public AsyncStoreBuildCacheServiceHandle(BuildCacheServiceHandle delegate, BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory, int concurrency, int queueSize) {
+        this.delegate = delegate;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.executor = executorFactory.create("Remote build cache store", concurrency);
+        this.queueSlots = new Semaphore(queueSize);
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    @Override
+    public void load(BuildCacheKey key, LoadTarget loadTarget) {
+        delegate.load(key, loadTarget);
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    @Override
+    public void store(final BuildCacheKey key, StoreTarget storeTarget) {
+        final String hashCode = key.getHashCode();
+        if (!queuedKeys.add(hashCode)) {
+            LOGGER.debug("Entry {} is already queued to be stored in remote build cache", hashCode);
+            return;
+        }
+
+        if (!queueSlots.tryAcquire()) {
+            queuedKeys.remove(hashCode);
+            LOGGER.debug("Queue of stores to remote build cache is full, storing entry {} now", hashCode);
+            delegate.store(key, storeTarget);
+            return;
+        }
+
+        final File file;
+        try {
+            file = takeOwnership(storeTarget.getFile());
+        } catch (IOException e) {
+            dequeue(hashCode);
+            LOGGER.debug("Could not queue entry {} to be stored in remote build cache, storing it now", hashCode, e);
+            delegate.store(key, storeTarget);
+            return;
+        }
+
+        final int depth = queueDepth.incrementAndGet();
+        final long queuedAt = System.currentTimeMillis();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        upload(key, file, depth, queuedAt);
+                    } finally {
+                        GFileUtils.deleteQuietly(file);
+                        queueDepth.decrementAndGet();
+                        dequeue(hashCode);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            GFileUtils.deleteQuietly(file);
+            queueDepth.decrementAndGet();
+            dequeue(hashCode);
+            LOGGER.debug("Could not queue entry {} to be stored in remote build cache, storing it now", hashCode, e);
+            delegate.store(key, storeTarget);
+        }
+    }
+
+    private void upload(final BuildCacheKey key, final File file, final int depth, final long queuedAt) {
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                // The remote cache may have been disabled due to an error since this store was queued
+                if (delegate.canStore()) {
+                    delegate.store(key, new StoreTarget(file));
+                }
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Upload queued entry " + key.getHashCode() + " to remote build cache")
+                    .details(new QueuedStoreOperationDetails(key, depth, System.currentTimeMillis() - queuedAt))
+                    .progressDisplayName("Uploading to remote build cache");
+            }
+        });
+    }
+
+    private void dequeue(String hashCode) {
+        queuedKeys.remove(hashCode);
+        queueSlots.release();
+    }
+
+    /**
+     * Links the given file to a new file next to it, or copies it when it can't be linked.
+     */
+    private static File takeOwnership(File file) throws IOException {
+        File target = new File(file.getParentFile(), file.getName() + ".upload");
+        try {
+            Files.createLink(target.toPath(), file.toPath());
+        } catch (IOException e) {
+            Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (UnsupportedOperationException e) {
+            Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Waiting for {} queued stores to remote build cache", queueDepth.get());
+        CompositeStoppable.stoppable(executor, delegate).stop();
+    }
+}
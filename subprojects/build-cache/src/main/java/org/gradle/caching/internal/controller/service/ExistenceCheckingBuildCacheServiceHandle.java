@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.ExistenceCheckingBuildCacheService;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Checks in the background whether the remote build cache has the entries for keys that are known before they are needed.
+ *
+ * Only the existence of an entry is checked, so no entry is transferred for a task that turns out to be up-to-date or is found in the local cache.
+ * A later {@link #load(BuildCacheKey, LoadTarget)} of an entry the remote cache is known not to have makes no request.
+ * Results are kept until they are used or discarded.
+ */
+public class ExistenceCheckingBuildCacheServiceHandle implements BuildCacheServiceHandle {
+
+    private static final Logger LOGGER = Logging.getLogger(ExistenceCheckingBuildCacheServiceHandle.class);
+
+    private final BuildCacheServiceHandle delegate;
+    private final ExistenceCheckingBuildCacheService service;
+    private final ManagedExecutor executor;
+    private final int maxPending;
+    private final ConcurrentMap<String, ExistenceCheck> checks = new ConcurrentHashMap<String, ExistenceCheck>();
+
+    public ExistenceCheckingBuildCacheServiceHandle(BuildCacheServiceHandle delegate, ExistenceCheckingBuildCacheService service, ExecutorFactory executorFactory, int concurrency, int maxPending) {
+        this.delegate = delegate;
+        this.service = service;
+        this.executor = executorFactory.create("Remote build cache existence check", concurrency);
+        this.maxPending = maxPending;
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    /**
+     * Starts checking whether the remote cache has the entry for the given key, unless it is already being checked or too many checks are pending.
+     */
+    public void checkExists(BuildCacheKey key) {
+        if (!delegate.canLoad() || checks.size() >= maxPending) {
+            return;
+        }
+        ExistenceCheck check = new ExistenceCheck(key);
+        String hashCode = key.getHashCode();
+        if (checks.putIfAbsent(hashCode, check) == null) {
+            try {
+                executor.execute(check);
+            } catch (RejectedExecutionException e) {
+                checks.remove(hashCode, check);
+            }
+        }
+    }
+
+    /**
+     * Forgets the result of checking the entry for the given key.
+     */
+    public void discard(BuildCacheKey key) {
+        checks.remove(key.getHashCode());
+    }
+
+    @Override
+    public void load(BuildCacheKey key, LoadTarget loadTarget) {
+        ExistenceCheck check = checks.remove(key.getHashCode());
+        if (check != null && check.isMissing()) {
+            LOGGER.debug("Remote build cache does not have entry {}, not loading it", key.getHashCode());
+            return;
+        }
+        delegate.load(key, loadTarget);
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    @Override
+    public void store(BuildCacheKey key, StoreTarget storeTarget) {
+        delegate.store(key, storeTarget);
+    }
+
+    @Override
+    public void close() {
+        CompositeStoppable.stoppable(executor, delegate).stop();
+        checks.clear();
+    }
+
+    private class ExistenceCheck implements Runnable {
+        private final BuildCacheKey key;
+        private volatile Boolean exists;
+
+        ExistenceCheck(BuildCacheKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            // The remote cache may have been disabled due to an error since this check was started
+            if (!delegate.canLoad()) {
+                return;
+            }
+            try {
+                exists = service.contains(key);
+            } catch (Exception e) {
+                LOGGER.debug("Could not check whether remote build cache has entry {}", key.getHashCode(), e);
+            }
+        }
+
+        /**
+         * Returns true when the check has finished and found no entry. An unfinished or failed check is treated as unknown.
+         */
+        boolean isMissing() {
+            return Boolean.FALSE.equals(exists);
+        }
+    }
+}
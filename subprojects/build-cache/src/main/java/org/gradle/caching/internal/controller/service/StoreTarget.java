@@ -50,6 +50,10 @@ public class StoreTarget implements BuildCacheEntryWriter {
         }
     }
 
+    File getFile() {
+        return file;
+    }
+
     public boolean isStored() {
         return stored;
     }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.operations;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * A store operation to a remote build cache that was queued, to be uploaded in the background.
+ *
+ * The actual upload is a {@link BuildCacheRemoteStoreBuildOperationType} child operation, so its duration is the upload latency.
+ */
+public final class BuildCacheRemoteQueuedStoreBuildOperationType implements BuildOperationType<BuildCacheRemoteQueuedStoreBuildOperationType.Details, BuildCacheRemoteQueuedStoreBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The cache key.
+         */
+        String getCacheKey();
+
+        /**
+         * The number of stores that were queued or being uploaded when this store was queued, including this one.
+         */
+        int getQueueDepth();
+
+        /**
+         * The time in milliseconds this store spent in the queue before its upload started.
+         */
+        long getQueuedTime();
+
+    }
+
+    /**
+     * Queued stores have no result of their own, the outcome is the result of the child store operation.
+     */
+    public interface Result {
+    }
+
+    private BuildCacheRemoteQueuedStoreBuildOperationType() {
+    }
+}
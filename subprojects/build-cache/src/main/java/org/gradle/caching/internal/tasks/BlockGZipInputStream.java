@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static org.gradle.caching.internal.tasks.BlockGZipOutputStream.HEADER_SIZE;
+import static org.gradle.caching.internal.tasks.BlockGZipOutputStream.SUBFIELD_ID1;
+import static org.gradle.caching.internal.tasks.BlockGZipOutputStream.SUBFIELD_ID2;
+import static org.gradle.caching.internal.tasks.BlockGZipOutputStream.TRAILER_SIZE;
+import static org.gradle.caching.internal.tasks.BlockGZipOutputStream.getBlock;
+
+/**
+ * Decompresses a stream written by {@link BlockGZipOutputStream}, decompressing the next few members concurrently.
+ *
+ * <p>Any other GZIP stream is decompressed sequentially.</p>
+ */
+public class BlockGZipInputStream extends InputStream {
+    private static final byte[] NO_DATA = new byte[0];
+    private static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+    private final InputStream input;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+    private final byte[] header = new byte[HEADER_SIZE];
+    private InputStream sequentialInput;
+    private boolean firstMember = true;
+    private boolean endOfInput;
+    private byte[] block = NO_DATA;
+    private int position;
+
+    public BlockGZipInputStream(InputStream input, ExecutorService executor, int maxPendingBlocks) {
+        this.input = input;
+        this.executor = executor;
+        this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return sequentialInput != null ? sequentialInput.read() : -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return sequentialInput != null ? sequentialInput.read(bytes, offset, length) : -1;
+        }
+        int count = Math.min(length, block.length - position);
+        System.arraycopy(block, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> pendingBlock : pendingBlocks) {
+            pendingBlock.cancel(false);
+        }
+        pendingBlocks.clear();
+        if (sequentialInput != null) {
+            sequentialInput.close();
+        } else {
+            input.close();
+        }
+    }
+
+    private boolean ensureData() throws IOException {
+        while (position == block.length) {
+            while (!endOfInput && pendingBlocks.size() < maxPendingBlocks) {
+                readMember();
+            }
+            if (pendingBlocks.isEmpty()) {
+                return false;
+            }
+            block = getBlock(pendingBlocks.remove());
+            position = 0;
+        }
+        return true;
+    }
+
+    private void readMember() throws IOException {
+        int headerLength = IOUtils.read(input, header);
+        if (headerLength == 0 && !firstMember) {
+            endOfInput = true;
+            return;
+        }
+        if (headerLength < HEADER_SIZE || !hasBlockSize(header)) {
+            if (!firstMember) {
+                throw new ZipException("Not in block GZIP format");
+            }
+            // Not written by BlockGZipOutputStream, so decompress everything on this thread
+            sequentialInput = new GZIPInputStream(new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), input));
+            endOfInput = true;
+            return;
+        }
+        firstMember = false;
+        int memberSize = getInt(header, 16);
+        if (memberSize < HEADER_SIZE + TRAILER_SIZE || memberSize > MAX_BLOCK_SIZE) {
+            throw new ZipException("Invalid block size: " + memberSize);
+        }
+        final byte[] member = new byte[memberSize];
+        System.arraycopy(header, 0, member, 0, HEADER_SIZE);
+        IOUtils.readFully(input, member, HEADER_SIZE, memberSize - HEADER_SIZE);
+        pendingBlocks.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return decompress(member);
+            }
+        }));
+    }
+
+    private static boolean hasBlockSize(byte[] header) {
+        return header[0] == (byte) 0x1f
+            && header[1] == (byte) 0x8b
+            && header[3] == 4
+            && header[10] == 8 && header[11] == 0
+            && header[12] == SUBFIELD_ID1 && header[13] == SUBFIELD_ID2
+            && header[14] == 4 && header[15] == 0;
+    }
+
+    private static byte[] decompress(byte[] member) throws IOException {
+        int trailer = member.length - TRAILER_SIZE;
+        int length = getInt(member, trailer + 4);
+        if (length < 0 || length > MAX_BLOCK_SIZE) {
+            throw new ZipException("Invalid block length: " + length);
+        }
+        byte[] data = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, HEADER_SIZE, trailer - HEADER_SIZE);
+            int count = 0;
+            while (count < length) {
+                int inflated = inflater.inflate(data, count, length - count);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflated;
+            }
+            // Make sure the block ends here
+            if (count != length || inflater.inflate(new byte[1]) != 0 || !inflater.finished()) {
+                throw new ZipException("Corrupt GZIP block");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != getInt(member, trailer)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        return data;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+            | (bytes[offset + 1] & 0xff) << 8
+            | (bytes[offset + 2] & 0xff) << 16
+            | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.gradle.internal.UncheckedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a stream in blocks of a fixed size, which are compressed concurrently into separate GZIP members.
+ *
+ * <p>The result is a valid multi-member GZIP stream. The header of each member has an extra field with the size of the member, so that
+ * {@link BlockGZipInputStream} can find the members without decompressing them. As the block boundaries only depend on the number of bytes
+ * written, the result does not depend on the number of threads or on how the stream is flushed.</p>
+ */
+public class BlockGZipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    static final int HEADER_SIZE = 20;
+    static final int TRAILER_SIZE = 8;
+    static final byte SUBFIELD_ID1 = 'G';
+    static final byte SUBFIELD_ID2 = 'B';
+    private static final int FEXTRA = 4;
+    private static final int OS_UNKNOWN = 255;
+
+    private final OutputStream output;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final int blockSize;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+    private byte[] block;
+    private int blockLength;
+    private boolean empty = true;
+    private boolean closed;
+
+    public BlockGZipOutputStream(OutputStream output, ExecutorService executor, int maxPendingBlocks) {
+        this(output, executor, maxPendingBlocks, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockGZipOutputStream(OutputStream output, ExecutorService executor, int maxPendingBlocks, int blockSize) {
+        this.output = output;
+        this.executor = executor;
+        this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+        block[blockLength++] = (byte) b;
+        empty = false;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+            int count = Math.min(length, blockSize - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            length -= count;
+            empty = false;
+        }
+    }
+
+    /**
+     * Writes the blocks that have been compressed so far. Does not end the current block.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peek().isDone()) {
+            output.write(getBlock(pendingBlocks.remove()));
+        }
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // An empty stream is still written as a member, to produce a valid GZIP stream
+            if (blockLength > 0 || empty) {
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                output.write(getBlock(pendingBlocks.remove()));
+            }
+        } finally {
+            for (Future<byte[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(false);
+            }
+            output.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        pendingBlocks.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return compress(data, length);
+            }
+        }));
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            output.write(getBlock(pendingBlocks.remove()));
+        }
+    }
+
+    static byte[] compress(byte[] data, int length) {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + HEADER_SIZE + TRAILER_SIZE);
+        member.write(new byte[HEADER_SIZE], 0, HEADER_SIZE);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                member.write(buffer, 0, count);
+            }
+        } finally {
+            deflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        writeInt(member, (int) crc.getValue());
+        writeInt(member, length);
+
+        byte[] bytes = member.toByteArray();
+        bytes[0] = (byte) 0x1f;
+        bytes[1] = (byte) 0x8b;
+        bytes[2] = Deflater.DEFLATED;
+        bytes[3] = FEXTRA;
+        // Modification time (4 bytes) and extra flags are left zero
+        bytes[9] = (byte) OS_UNKNOWN;
+        // Extra field length
+        bytes[10] = 8;
+        bytes[12] = SUBFIELD_ID1;
+        bytes[13] = SUBFIELD_ID2;
+        // Subfield length
+        bytes[14] = 4;
+        putInt(bytes, 16, bytes.length);
+        return bytes;
+    }
+
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+        output.write(value);
+        output.write(value >>> 8);
+        output.write(value >>> 16);
+        output.write(value >>> 24);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    static <T> T getBlock(Future<T> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package org.gradle.caching.local.internal;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Striped;
 import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentCache;
@@ -38,21 +40,33 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.attribute.FileTime;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Stores build cache entries as files in a directory.
+ *
+ * <p>Entries are guarded by read-write locks that are striped by cache key, so that loads and stores of different entries don't wait for each other.
+ * Loads only ever take a read lock. An entry is first written to a temporary file in the cache directory and then renamed into place, so the
+ * write lock for its key is only held while the file is moved. Other processes are kept out with a file lock, which is shared by all threads of this process.</p>
+ */
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
 
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final String failedFileSuffix;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Striped<ReadWriteLock> locks;
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, failedFileSuffix, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @VisibleForTesting
+    DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix, int lockStripes) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.failedFileSuffix = failedFileSuffix;
+        this.locks = Striped.readWriteLock(lockStripes);
     }
 
     private static class LoadAction implements Action<File> {
@@ -96,6 +110,7 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
+                ReadWriteLock lock = locks.get(key.getHashCode());
                 lock.readLock().lock();
                 try {
                     loadInsideLock(key, reader);
@@ -157,6 +172,7 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
+                ReadWriteLock lock = locks.get(key.getHashCode());
                 lock.writeLock().lock();
                 try {
                     storeInsideLock(key, file);
@@ -29,6 +29,7 @@ import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistr
 import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperationType
 import org.gradle.caching.local.DirectoryBuildCache
 import org.gradle.caching.local.internal.LocalBuildCacheService
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.reflect.DirectInstantiator
 import org.gradle.testing.internal.util.Specification
@@ -55,6 +56,7 @@ class BuildCacheControllerFactoryTest extends Specification {
     private <T extends BuildCacheController> T createController(Class<T> controllerType) {
         def controller = BuildCacheControllerFactory.create(
             buildOperationExecuter,
+            new DefaultExecutorFactory(),
             Path.path("test"),
             null,
             config,
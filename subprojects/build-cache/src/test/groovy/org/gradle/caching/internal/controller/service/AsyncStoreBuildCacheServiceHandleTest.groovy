@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.internal.operations.BuildCacheRemoteQueuedStoreBuildOperationType
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testing.internal.util.Specification
+import org.junit.Rule
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+
+class AsyncStoreBuildCacheServiceHandleTest extends Specification {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def uploadStarted = new CountDownLatch(1)
+    def uploadAllowed = new CountDownLatch(1)
+    def stored = new CopyOnWriteArrayList<String>()
+    def delegateClosed = false
+    def testThread = Thread.currentThread()
+
+    // Spock mocks serialize invocations, so the delegate is a plain stub that can be called from many threads
+    def delegate = [
+        getService: { null },
+        canLoad: { true },
+        canStore: { true },
+        store: { BuildCacheKey key, StoreTarget target ->
+            // Only queued stores wait, stores made right away must not block the test
+            if (Thread.currentThread() != testThread) {
+                uploadStarted.countDown()
+                uploadAllowed.await()
+            }
+            def output = new ByteArrayOutputStream()
+            target.writeTo(output)
+            stored << "${key.hashCode}: ${output}".toString()
+        },
+        close: { delegateClosed = true }
+    ] as BuildCacheServiceHandle
+
+    def "stores entry in the background after the packed file has been deleted"() {
+        def handle = handle(2, 16)
+        def file = temporaryFolder.file("entry") << "content"
+
+        when:
+        handle.store(key("a"), new StoreTarget(file))
+        file.delete()
+        uploadAllowed.countDown()
+        handle.close()
+
+        then:
+        stored == ["a: content"]
+        delegateClosed
+        temporaryFolder.testDirectory.list() as List == []
+    }
+
+    def "does not queue an entry that is already queued"() {
+        def handle = handle(2, 16)
+
+        when:
+        handle.store(key("a"), new StoreTarget(temporaryFolder.file("first") << "first"))
+        handle.store(key("a"), new StoreTarget(temporaryFolder.file("second") << "second"))
+        uploadAllowed.countDown()
+        handle.close()
+
+        then:
+        stored == ["a: first"]
+    }
+
+    def "stores entry right away when the queue is full"() {
+        def handle = handle(1, 1)
+
+        when:
+        handle.store(key("a"), new StoreTarget(temporaryFolder.file("a") << "a"))
+        uploadStarted.await()
+        handle.store(key("b"), new StoreTarget(temporaryFolder.file("b") << "b"))
+
+        then:
+        stored == ["b: b"]
+
+        when:
+        uploadAllowed.countDown()
+        handle.close()
+
+        then:
+        stored == ["b: b", "a: a"]
+    }
+
+    def "stores entry right away when it cannot be queued"() {
+        def handle = handle(1, 1)
+        handle.close()
+
+        when:
+        handle.store(key("a"), new StoreTarget(temporaryFolder.file("first") << "first"))
+        handle.store(key("a"), new StoreTarget(temporaryFolder.file("second") << "second"))
+
+        then:
+        stored == ["a: first", "a: second"]
+        (temporaryFolder.testDirectory.list() as List).sort() == ["first", "second"]
+    }
+
+    def "exposes queue depth of uploads"() {
+        def handle = handle(1, 16)
+
+        when:
+        handle.store(key("a"), new StoreTarget(temporaryFolder.file("a") << "a"))
+        handle.store(key("b"), new StoreTarget(temporaryFolder.file("b") << "b"))
+        uploadAllowed.countDown()
+        handle.close()
+
+        then:
+        def details = buildOperationExecutor.log.all(BuildCacheRemoteQueuedStoreBuildOperationType)*.descriptor*.details
+        details*.cacheKey == ["a", "b"]
+        details*.queueDepth == [1, 2]
+        details.every { it.queuedTime >= 0 }
+    }
+
+    private AsyncStoreBuildCacheServiceHandle handle(int concurrency, int queueSize) {
+        new AsyncStoreBuildCacheServiceHandle(delegate, buildOperationExecutor, new DefaultExecutorFactory(), concurrency, queueSize)
+    }
+
+    private static BuildCacheKey key(String hashCode) {
+        [getHashCode: { hashCode }, getDisplayName: { hashCode }] as BuildCacheKey
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheException
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.internal.ExistenceCheckingBuildCacheService
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import spock.lang.Specification
+
+import java.util.concurrent.RejectedExecutionException
+
+class ExistenceCheckingBuildCacheServiceHandleTest extends Specification {
+
+    def delegate = Mock(BuildCacheServiceHandle)
+    def service = Mock(ExistenceCheckingBuildCacheService)
+    def queued = []
+    def executor = Mock(ManagedExecutor) {
+        execute(_) >> { Runnable check -> queued << check }
+    }
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_, _) >> executor
+    }
+    def key = Stub(BuildCacheKey) {
+        getHashCode() >> "key-a"
+    }
+    def target = new LoadTarget(new File("target"))
+
+    def handle = new ExistenceCheckingBuildCacheServiceHandle(delegate, service, executorFactory, 1, 2)
+
+    def "does not load entry the remote cache does not have"() {
+        when:
+        handle.checkExists(key)
+        runQueuedChecks()
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * service.contains(key) >> false
+        0 * delegate.load(_, _)
+    }
+
+    def "loads entry the remote cache has"() {
+        when:
+        handle.checkExists(key)
+        runQueuedChecks()
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * service.contains(key) >> true
+        1 * delegate.load(key, target)
+    }
+
+    def "loads entry without waiting for an unfinished check"() {
+        when:
+        handle.checkExists(key)
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * delegate.load(key, target)
+        0 * service.contains(_)
+    }
+
+    def "loads entry when the check fails"() {
+        when:
+        handle.checkExists(key)
+        runQueuedChecks()
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * service.contains(key) >> { throw new BuildCacheException("failure") }
+        1 * delegate.load(key, target)
+    }
+
+    def "loads entry again after the result has been used"() {
+        when:
+        handle.checkExists(key)
+        runQueuedChecks()
+        handle.load(key, target)
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * service.contains(key) >> false
+        1 * delegate.load(key, target)
+    }
+
+    def "loads entry after the result has been discarded"() {
+        when:
+        handle.checkExists(key)
+        runQueuedChecks()
+        handle.discard(key)
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * service.contains(key) >> false
+        1 * delegate.load(key, target)
+    }
+
+    def "does not check an entry that is already being checked"() {
+        when:
+        handle.checkExists(key)
+        handle.checkExists(key)
+
+        then:
+        _ * delegate.canLoad() >> true
+        queued.size() == 1
+    }
+
+    def "does not check more entries than allowed to be pending"() {
+        when:
+        handle.checkExists(key("key-a"))
+        handle.checkExists(key("key-b"))
+        handle.checkExists(key("key-c"))
+
+        then:
+        _ * delegate.canLoad() >> true
+        queued.size() == 2
+    }
+
+    def "does not check when the remote cache cannot load"() {
+        when:
+        handle.checkExists(key)
+
+        then:
+        _ * delegate.canLoad() >> false
+        queued.empty
+    }
+
+    def "forgets check that could not be started"() {
+        when:
+        handle.checkExists(key)
+        handle.load(key, target)
+
+        then:
+        _ * delegate.canLoad() >> true
+        1 * executor.execute(_) >> { throw new RejectedExecutionException() }
+        1 * delegate.load(key, target)
+    }
+
+    def "does not check when the remote cache has been disabled in the meantime"() {
+        when:
+        handle.checkExists(key)
+        runQueuedChecks()
+        handle.load(key, target)
+
+        then:
+        2 * delegate.canLoad() >>> [true, false]
+        0 * service.contains(_)
+        1 * delegate.load(key, target)
+    }
+
+    def "stops executor and delegate on close"() {
+        when:
+        handle.close()
+
+        then:
+        1 * executor.stop()
+        1 * delegate.close()
+    }
+
+    private void runQueuedChecks() {
+        queued*.run()
+        queued.clear()
+    }
+
+    private BuildCacheKey key(String hashCode) {
+        Stub(BuildCacheKey) {
+            getHashCode() >> hashCode
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Executors
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+import java.util.zip.ZipException
+
+class BlockGZipOutputStreamTest extends Specification {
+    static final int BLOCK_SIZE = 1000
+
+    def executor = Executors.newFixedThreadPool(3)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    @Unroll
+    def "can compress and decompress #length bytes"() {
+        def data = randomBytes(length)
+
+        when:
+        def compressed = compress(data, 2)
+
+        then:
+        decompress(compressed, 2) == data
+        new GZIPInputStream(new ByteArrayInputStream(compressed)).bytes == data
+
+        where:
+        length << [0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 10 * BLOCK_SIZE + 17]
+    }
+
+    def "output does not depend on the number of pending blocks or how data is written"() {
+        def data = randomBytes(20 * BLOCK_SIZE + 3)
+
+        when:
+        def byteByByte = new ByteArrayOutputStream()
+        def output = new BlockGZipOutputStream(byteByByte, executor, 5, BLOCK_SIZE)
+        data.each { output.write(it) }
+        output.flush()
+        output.close()
+
+        then:
+        compress(data, 1) == compress(data, 8)
+        byteByByte.toByteArray() == compress(data, 1)
+    }
+
+    def "can decompress other GZIP streams"() {
+        def data = randomBytes(10 * BLOCK_SIZE)
+        def compressed = new ByteArrayOutputStream()
+        def output = new GZIPOutputStream(compressed)
+        output.write(data)
+        output.close()
+
+        expect:
+        decompress(compressed.toByteArray(), 2) == data
+    }
+
+    def "detects corrupt blocks"() {
+        def data = randomBytes(3 * BLOCK_SIZE)
+        def compressed = compress(data, 2)
+        // Flip a bit of the CRC of the first block
+        def crcOffset = readInt(compressed, 16) - 8
+        compressed[crcOffset] ^= 1
+
+        when:
+        decompress(compressed, 2)
+
+        then:
+        def e = thrown(ZipException)
+        e.message == "Corrupt GZIP trailer"
+    }
+
+    def "detects truncated streams"() {
+        def compressed = compress(randomBytes(3 * BLOCK_SIZE), 2)
+
+        when:
+        decompress(Arrays.copyOf(compressed, compressed.length - 10), 2)
+
+        then:
+        thrown(EOFException)
+    }
+
+    private byte[] compress(byte[] data, int maxPendingBlocks) {
+        def compressed = new ByteArrayOutputStream()
+        def output = new BlockGZipOutputStream(compressed, executor, maxPendingBlocks, BLOCK_SIZE)
+        output.write(data)
+        output.close()
+        return compressed.toByteArray()
+    }
+
+    private byte[] decompress(byte[] compressed, int maxPendingBlocks) {
+        def input = new BlockGZipInputStream(new ByteArrayInputStream(compressed), executor, maxPendingBlocks)
+        try {
+            return input.bytes
+        } finally {
+            input.close()
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        def random = new Random(length)
+        def data = new byte[length]
+        // Repeat some bytes so that the data can be compressed
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) random.nextInt(16)
+        }
+        return data
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8 | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24
+    }
+}
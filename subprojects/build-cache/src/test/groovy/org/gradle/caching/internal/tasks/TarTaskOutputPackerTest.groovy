@@ -38,6 +38,7 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 
 import static org.gradle.api.internal.tasks.OutputType.DIRECTORY
 import static org.gradle.api.internal.tasks.OutputType.FILE
@@ -331,6 +332,40 @@ class TarTaskOutputPackerTest extends Specification {
         0 * _
     }
 
+    def "can unpack files on background threads"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        def random = new Random(1234L)
+        def paths = (0..<20).collect { index -> "subdir${index % 3}/file${index}.bin" as String }
+        paths.eachWithIndex { path, index ->
+            def file = sourceOutputDir.file(path)
+            file.parentFile.mkdirs()
+            // Every fifth file is too large to be written in the background
+            def content = new byte[index % 5 == 0 ? 2 * 1024 * 1024 : random.nextInt(10000)]
+            random.nextBytes(content)
+            file.bytes = content
+        }
+        def targetOutputDir = temporaryFolder.file("target")
+        def output = new ByteArrayOutputStream()
+        def executor = Executors.newFixedThreadPool(2)
+        def backgroundPacker = new TarTaskOutputPacker(fileSystem, streamHasher, stringInterner, executor, 3)
+
+        when:
+        pack output, prop(DIRECTORY, sourceOutputDir)
+        def result = backgroundPacker.unpack([prop(DIRECTORY, targetOutputDir).property] as SortedSet, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+        def serialResult = unpack new ByteArrayInputStream(output.toByteArray()), prop(DIRECTORY, temporaryFolder.file("serial-target"))
+
+        then:
+        paths.each { path ->
+            assert targetOutputDir.file(path).bytes == sourceOutputDir.file(path).bytes
+        }
+        // Only the names of the roots differ
+        result.snapshots.values()*.relativePath.drop(1) == serialResult.snapshots.values()*.relativePath.drop(1)
+        result.snapshots.values()*.content*.contentMd5 == serialResult.snapshots.values()*.content*.contentMd5
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
     def pack(OutputStream output, TaskOutputOriginWriter writeOrigin = this.writeOrigin, PropertyDefinition... propertyDefs) {
         def propertySpecs = propertyDefs*.property as SortedSet
         def outputSnapshots = propertyDefs.collectEntries { propertyDef ->
@@ -92,7 +92,8 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         def result = load.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged({ it as List == [outputDir, outputFile, localStateFile] })
         1 * originFactory.createReader(task)
 
         then:
@@ -112,9 +113,6 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
             assert propertySnapshots["outputDir"].elements == [outputDir, outputDirFile]
         }
 
-        then:
-        1 * taskProperties.getLocalStateFiles() >> localStateFiles
-
         then:
         result.artifactEntryCount == 123
         result.metadata == originMetadata
@@ -134,7 +132,8 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         command.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged({ it as List == [outputFile, localStateFile] })
         1 * originFactory.createReader(task)
 
         then:
@@ -146,9 +145,6 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         then:
         1 * taskArtifactState.afterOutputsRemovedBeforeTask()
 
-        then:
-        1 * taskProperties.getLocalStateFiles() >> localStateFiles
-
         then:
         def ex = thrown Exception
         !(ex instanceof UnrecoverableTaskOutputUnpackingException)
@@ -169,7 +165,9 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         command.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * outputProperties.iterator() >> Collections.emptyIterator()
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged({ it as List == [localStateFile] })
         1 * originFactory.createReader(task)
 
         then:
@@ -180,9 +178,6 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         then:
         1 * outputProperties.iterator() >> { throw new RuntimeException("cleanup error") }
 
-        then:
-        1 * taskProperties.getLocalStateFiles() >> localStateFiles
-
         then:
         def ex = thrown UnrecoverableTaskOutputUnpackingException
         ex.cause.message == "unpacking error"
@@ -192,6 +187,24 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         !localStateFile.exists()
     }
 
+    def "invalidates all file system state when loading a task without outputs or local state"() {
+        def input = Mock(InputStream)
+        def outputProperties = [] as SortedSet
+        def command = commandFactory.createLoad(key, outputProperties, task, taskProperties, taskOutputsGenerationListener, taskArtifactState)
+
+        when:
+        command.load(input)
+
+        then:
+        1 * taskProperties.getLocalStateFiles() >> new SimpleFileCollection()
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        0 * taskOutputsGenerationListener.beforeTaskOutputChanged(_)
+
+        then:
+        1 * packer.unpack(outputProperties, input, _) >> new TaskOutputPacker.UnpackResult(originMetadata, 0, ImmutableListMultimap.of())
+        1 * taskArtifactState.snapshotAfterLoadedFromCache(ImmutableSortedMap.of(), originMetadata)
+    }
+
     def "store invokes packer"() {
         def output = Mock(OutputStream)
         def outputProperties = props("output")
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.local.internal
 
+import org.gradle.api.Action
 import org.gradle.cache.PersistentCache
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
@@ -26,6 +27,9 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheServiceTest extends Specification {
@@ -68,4 +72,40 @@ class DirectoryBuildCacheServiceTest extends Specification {
         cacheDir.listFiles() as List == []
         1 * key.getHashCode() >> hashCode
     }
+
+    def "loads entries while an entry with another key is being stored"() {
+        def moveStarted = new CountDownLatch(1)
+        def finishMove = new CountDownLatch(1)
+        def loadedKeys = []
+        def movesFinished = []
+        // Use coerced maps rather than mocks, as calls to mocks are serialized
+        def fileStore = [
+            move: { String key, File source ->
+                moveStarted.countDown()
+                movesFinished << finishMove.await(10, TimeUnit.SECONDS)
+                null
+            },
+            get: { String key ->
+                loadedKeys << key
+                null
+            }
+        ] as PathKeyFileStore
+        def persistentCache = [withFileLock: { action -> action.run() }] as PersistentCache
+        def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, ".failed", 1024)
+        def storedKey = [getHashCode: { "0123456789abcdef" }] as BuildCacheKey
+        def loadedKey = [getHashCode: { "fedcba9876543210" }] as BuildCacheKey
+
+        when:
+        def store = Thread.start {
+            service.storeLocally(storedKey, temporaryFolder.createFile("entry"))
+        }
+        assert moveStarted.await(10, TimeUnit.SECONDS)
+        service.loadLocally(loadedKey, {} as Action)
+        finishMove.countDown()
+        store.join()
+
+        then:
+        loadedKeys == ["fedcba9876543210"]
+        movesFinished == [true]
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory;
+import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
+import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.hash.DefaultContentHasherFactory;
+import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Snapshots a freshly created directory tree, comparing a walk on the calling thread with a parallel walk.
+ * Each invocation starts with an empty {@link FileSystemMirror}, so every file is listed and hashed again.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+@SuppressWarnings("Since15")
+public class DirectorySnapshottingBenchmark {
+    private static final int FILES_PER_DIRECTORY = 20;
+    private static final int FILE_SIZE = 4096;
+
+    Path tempDirPath;
+    File treeRoot;
+    FileSystem fileSystem;
+    FileHasher fileHasher;
+    DirectoryFileTreeFactory directoryFileTreeFactory;
+    ParallelDirectoryWalker directoryWalker;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    @Param({"2", "4"})
+    int depth;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.tempDirPath = Files.createTempDirectory("directory-snapshotting");
+        NativeServices.initialize(tempDirPath.toFile());
+        this.fileSystem = FileSystems.getDefault();
+        this.fileHasher = new DefaultFileHasher(new DefaultStreamHasher(new DefaultContentHasherFactory()));
+        this.directoryFileTreeFactory = new DefaultDirectoryFileTreeFactory();
+        this.directoryWalker = new ParallelDirectoryWalker(fileSystem, parallelism);
+
+        this.treeRoot = tempDirPath.resolve("tree").toFile();
+        createTree(treeRoot, depth, new Random(1234L));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        directoryWalker.stop();
+        FileUtils.forceDelete(tempDirPath.toFile());
+    }
+
+    private static void createTree(File dir, int depth, Random random) throws IOException {
+        byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < FILES_PER_DIRECTORY; i++) {
+            random.nextBytes(content);
+            FileUtils.writeByteArrayToFile(new File(dir, "file" + i + ".txt"), content);
+        }
+        if (depth > 0) {
+            for (int i = 0; i < 4; i++) {
+                createTree(new File(dir, "dir" + i), depth - 1, random);
+            }
+        }
+    }
+
+    @Benchmark
+    public void snapshotDirectoryTree(Blackhole blackhole) {
+        DefaultFileSystemSnapshotter snapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), fileSystem, directoryFileTreeFactory, new DefaultFileSystemMirror(Collections.<CachedJarFileStore>emptyList()), directoryWalker);
+        blackhole.consume(snapshotter.snapshotDirectoryTree(treeRoot));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.changedetection.rules.TaskStateChange;
+import org.gradle.internal.hash.HashCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares task history snapshots that keep an object per file with snapshots that keep their entries in a {@link CompactSnapshotMap}.
+ *
+ * The heap retained by the previous snapshot is measured once per trial and printed with the setup output.
+ * The benchmark itself measures the cost of comparing the current snapshot with the previous one when a file has changed.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+@SuppressWarnings("Since15")
+public class TaskHistorySnapshotBenchmark {
+    private static final String ROOT = "/home/user/workspace/project/subproject/src/main/java/";
+
+    @Param({"decoded", "compact"})
+    String representation;
+
+    @Param({"1000", "100000"})
+    int fileCount;
+
+    DefaultFileCollectionSnapshot previous;
+    DefaultFileCollectionSnapshot current;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        current = new DefaultFileCollectionSnapshot(createSnapshots(fileCount, fileCount / 2), TaskFilePropertyCompareStrategy.UNORDERED, false);
+
+        long before = usedHeap();
+        previous = new DefaultFileCollectionSnapshot(createSnapshots(fileCount, -1), TaskFilePropertyCompareStrategy.UNORDERED, false);
+        if (representation.equals("compact")) {
+            previous = previous.compact();
+        }
+        long retained = usedHeap() - before;
+        System.out.println(String.format("Retained size of a %s snapshot with %d files: %d bytes", representation, fileCount, retained));
+    }
+
+    /**
+     * Creates the same snapshots for every call, apart from the file at the given index, which has different content.
+     */
+    private static Map<String, NormalizedFileSnapshot> createSnapshots(int fileCount, int changedIndex) {
+        Random random = new Random(1234L);
+        Map<String, NormalizedFileSnapshot> snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>();
+        for (int i = 0; i < fileCount; i++) {
+            String relativePath = "org/gradle/package" + (i / 50) + "/SomeClass" + (i % 50) + ".java";
+            byte[] hash = new byte[16];
+            random.nextBytes(hash);
+            if (i == changedIndex) {
+                hash[0]++;
+            }
+            snapshots.put(ROOT + relativePath, new DefaultNormalizedFileSnapshot(relativePath, new FileHashSnapshot(HashCode.fromBytes(hash))));
+        }
+        return snapshots;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public void compareWithChangedFile(Blackhole blackhole) {
+        Iterator<TaskStateChange> changes = current.iterateContentChangesSince(previous, "Input", true);
+        while (changes.hasNext()) {
+            blackhole.consume(changes.next());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Action;
+import org.gradle.cache.PersistentCache;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.resource.local.DefaultPathKeyFileStore;
+import org.gradle.testfixtures.internal.InMemoryCacheFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Loads and stores entries of a directory build cache from many threads at the same time, with a single lock for all entries and with striped locks.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+@SuppressWarnings("Since15")
+public class DirectoryBuildCacheServiceBenchmark {
+    private static final int ENTRY_COUNT = 1000;
+    private static final int ENTRY_SIZE = 64 * 1024;
+
+    @Param({"1", "64"})
+    int lockStripes;
+
+    File cacheDir;
+    PersistentCache persistentCache;
+    DirectoryBuildCacheService service;
+    byte[] content;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cacheDir = Files.createTempDirectory("directory-build-cache").toFile();
+        persistentCache = new InMemoryCacheFactory().open(cacheDir, "build cache");
+        service = new DirectoryBuildCacheService(new DefaultPathKeyFileStore(cacheDir), persistentCache, new DefaultBuildCacheTempFileStore(cacheDir), ".failed", lockStripes);
+        content = new byte[ENTRY_SIZE];
+        new Random(1234L).nextBytes(content);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            service.store(new Key(i), new Writer(content));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.close();
+        FileUtils.forceDelete(cacheDir);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final Random random = new Random();
+
+        Key nextKey() {
+            return new Key(random.nextInt(ENTRY_COUNT));
+        }
+    }
+
+    @Benchmark
+    @Group("loadAndStore")
+    @GroupThreads(8)
+    public void load(ThreadState state, final Blackhole blackhole) {
+        service.load(state.nextKey(), new BuildCacheEntryReader() {
+            @Override
+            public void readFrom(InputStream input) throws IOException {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = input.read(buffer)) >= 0) {
+                    blackhole.consume(count);
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    @Group("loadAndStore")
+    @GroupThreads(8)
+    public void store(ThreadState state) {
+        service.store(state.nextKey(), new Writer(content));
+    }
+
+    @Benchmark
+    @Group("loadOnly")
+    @GroupThreads(16)
+    public void loadLocally(ThreadState state, final Blackhole blackhole) {
+        service.loadLocally(state.nextKey(), new Action<File>() {
+            @Override
+            public void execute(File file) {
+                blackhole.consume(file.length());
+            }
+        });
+    }
+
+    private static class Key implements BuildCacheKey {
+        private final String hashCode;
+
+        Key(int index) {
+            this.hashCode = String.format("%032x", index);
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return hashCode;
+        }
+    }
+
+    private static class Writer implements BuildCacheEntryWriter {
+        private final byte[] content;
+
+        Writer(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            output.write(content);
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.TaskInternal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs the scheduling loop of a task execution plan over a synthetic graph of layered tasks with a fixed number of workers, where each task
+ * depends on some tasks of the previous layer, including its last task, and has its own output directory.
+ *
+ * Compares scanning the whole queue and comparing the outputs of every running task for each scheduling decision with the {@link ExecutionQueue}
+ * and {@link PathTrie} used by {@link DefaultTaskExecutionPlan}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class TaskSchedulingBenchmark {
+    private static final int LAYER_WIDTH = 200;
+    private static final int DEPENDENCIES_PER_TASK = 3;
+    private static final int WORKERS = 8;
+
+    @Param({"scan", "indexed"})
+    String scheduler;
+
+    @Param({"1000", "50000"})
+    int taskCount;
+
+    List<TaskInfo> plan;
+    Map<TaskInfo, String> outputs;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        Random random = new Random(1234L);
+        plan = new ArrayList<TaskInfo>(taskCount);
+        outputs = new IdentityHashMap<TaskInfo, String>();
+        for (int i = 0; i < taskCount; i++) {
+            TaskInfo taskInfo = new TaskInfo(task(String.format("task%06d", i)));
+            int layerStart = (i / LAYER_WIDTH - 1) * LAYER_WIDTH;
+            if (layerStart >= 0) {
+                for (int j = 0; j < DEPENDENCIES_PER_TASK; j++) {
+                    taskInfo.addDependencySuccessor(plan.get(layerStart + random.nextInt(LAYER_WIDTH)));
+                }
+                // Every task also waits for the last task of the previous layer, which leaves workers idle at the end of each layer
+                taskInfo.addDependencySuccessor(plan.get(layerStart + LAYER_WIDTH - 1));
+            }
+            taskInfo.require();
+            plan.add(taskInfo);
+            outputs.put(taskInfo, "/home/user/project/subproject" + (i % LAYER_WIDTH) + "/build/task" + i);
+        }
+    }
+
+    @Benchmark
+    public int schedule() {
+        return scheduler.equals("scan") ? scheduleByScanning() : scheduleWithIndexes();
+    }
+
+    private int scheduleByScanning() {
+        LinkedList<TaskInfo> queue = new LinkedList<TaskInfo>(plan);
+        Deque<TaskInfo> running = new ArrayDeque<TaskInfo>();
+        int steps = 0;
+        while (!queue.isEmpty() || !running.isEmpty()) {
+            TaskInfo selected = null;
+            if (running.size() < WORKERS) {
+                Iterator<TaskInfo> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    TaskInfo taskInfo = iterator.next();
+                    steps++;
+                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && !overlapsRunningTask(taskInfo, running)) {
+                        iterator.remove();
+                        selected = taskInfo;
+                        break;
+                    }
+                }
+            }
+            if (selected != null) {
+                selected.startExecution();
+                running.add(selected);
+            } else {
+                running.remove().finishExecution();
+            }
+        }
+        return steps;
+    }
+
+    private boolean overlapsRunningTask(TaskInfo taskInfo, Deque<TaskInfo> running) {
+        String output = outputs.get(taskInfo);
+        for (TaskInfo runningTask : running) {
+            String runningOutput = outputs.get(runningTask);
+            if (output.equals(runningOutput) || output.startsWith(runningOutput + "/") || runningOutput.startsWith(output + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int scheduleWithIndexes() {
+        ExecutionQueue queue = new ExecutionQueue();
+        queue.reset(plan);
+        PathTrie runningOutputs = new PathTrie('/');
+        Deque<TaskInfo> running = new ArrayDeque<TaskInfo>();
+        int steps = 0;
+        while (queue.hasIncompleteTasks() || !running.isEmpty()) {
+            TaskInfo selected = null;
+            if (running.size() < WORKERS) {
+                Iterator<TaskInfo> iterator = queue.candidates();
+                while (iterator.hasNext()) {
+                    TaskInfo taskInfo = iterator.next();
+                    steps++;
+                    TaskInfo incompleteDependency = taskInfo.getFirstIncompleteDependency();
+                    if (incompleteDependency != null) {
+                        iterator.remove();
+                        queue.waitFor(taskInfo, incompleteDependency);
+                    } else if (runningOutputs.findOverlap(outputs.get(taskInfo)) == null) {
+                        iterator.remove();
+                        selected = taskInfo;
+                        break;
+                    }
+                }
+            }
+            if (selected != null) {
+                selected.startExecution();
+                runningOutputs.add(outputs.get(selected));
+                running.add(selected);
+            } else {
+                TaskInfo completed = running.remove();
+                completed.finishExecution();
+                runningOutputs.remove(outputs.get(completed));
+                queue.taskComplete(completed);
+            }
+        }
+        return steps;
+    }
+
+    private static TaskInternal task(final String name) {
+        return (TaskInternal) Proxy.newProxyInstance(TaskInternal.class.getClassLoader(), new Class<?>[]{TaskInternal.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("compareTo")) {
+                    return name.compareTo(((TaskInternal) args[0]).getName());
+                }
+                if (method.getName().equals("getName") || method.getName().equals("getPath") || method.getName().equals("toString")) {
+                    return name;
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.cache.StringInterner;
@@ -23,24 +24,45 @@ import org.gradle.caching.internal.BuildCacheHasher;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.internal.FileUtils;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.gradle.util.DeprecationLogger;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.zip.ZipException;
 
+/**
+ * Builds the snapshot of a classpath.
+ *
+ * When a {@link BuildOperationExecutor} is given, the jars which are not in the cache yet are hashed concurrently when the snapshot is built.
+ * The entries of the classpath are collected in classpath order afterwards, so the snapshot does not depend on how the work was scheduled.
+ */
 public abstract class AbstractClasspathSnapshotBuilder implements VisitingFileCollectionSnapshotBuilder {
     protected final CollectingFileCollectionSnapshotBuilder builder;
     private final ResourceHasher classpathResourceHasher;
     private final StringInterner stringInterner;
     private final ResourceSnapshotterCacheService cacheService;
+    private final BuildOperationExecutor buildOperationExecutor;
     private final JarHasher jarHasher;
     private final HashCode jarHasherConfigurationHash;
+    private final List<ClasspathEntry> entries = new ArrayList<ClasspathEntry>();
+    private final List<JarEntry> jarsToHash = new ArrayList<JarEntry>();
 
     public AbstractClasspathSnapshotBuilder(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, StringInterner stringInterner) {
+        this(classpathResourceHasher, cacheService, stringInterner, null);
+    }
+
+    public AbstractClasspathSnapshotBuilder(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, StringInterner stringInterner, @Nullable BuildOperationExecutor buildOperationExecutor) {
         this.builder = new CollectingFileCollectionSnapshotBuilder(TaskFilePropertyCompareStrategy.ORDERED, InputPathNormalizationStrategy.NONE, stringInterner);
         this.cacheService = cacheService;
+        this.buildOperationExecutor = buildOperationExecutor;
         this.stringInterner = stringInterner;
         this.classpathResourceHasher = classpathResourceHasher;
         this.jarHasher = new JarHasher();
@@ -61,28 +83,100 @@ public abstract class AbstractClasspathSnapshotBuilder implements VisitingFileCo
 
     @Override
     public void visitFileTreeSnapshot(Collection<FileSnapshot> descendants) {
-        ClasspathEntrySnapshotBuilder entryResourceCollectionBuilder = newClasspathEntrySnapshotBuilder();
+        final ClasspathEntrySnapshotBuilder entryResourceCollectionBuilder = newClasspathEntrySnapshotBuilder();
         try {
             new FileTree(descendants).visit(entryResourceCollectionBuilder);
         } catch (IOException e) {
             throw new GradleException("Error while snapshotting directory in classpath", e);
         }
-        entryResourceCollectionBuilder.collectNormalizedSnapshots(builder);
+        entries.add(new ClasspathEntry() {
+            @Override
+            public void collect() {
+                entryResourceCollectionBuilder.collectNormalizedSnapshots(builder);
+            }
+        });
     }
 
     @Override
-    public void visitFileSnapshot(RegularFileSnapshot file) {
+    public void visitFileSnapshot(final RegularFileSnapshot file) {
         if (FileUtils.hasExtensionIgnoresCase(file.getName(), ".jar")) {
             visitJar(file);
         } else {
-            visitNonJar(file);
+            entries.add(new ClasspathEntry() {
+                @Override
+                public void collect() {
+                    visitNonJar(file);
+                }
+            });
         }
     }
 
     private void visitJar(RegularFileSnapshot jarFile) {
-        HashCode hash = cacheService.hashFile(jarFile, jarHasher, jarHasherConfigurationHash);
-        if (hash != null) {
-            builder.collectFileSnapshot(jarFile.withContentHash(hash));
+        if (buildOperationExecutor == null) {
+            entries.add(new JarEntry(jarFile, null));
+            return;
+        }
+        // Only hand off the jars which need to be scanned, looking up cached hashes is cheaper than scheduling an operation
+        HashCode cachedHash = cacheService.getCachedHash(jarFile, jarHasherConfigurationHash);
+        JarEntry entry = new JarEntry(jarFile, cachedHash);
+        if (cachedHash == null) {
+            jarsToHash.add(entry);
+        }
+        entries.add(entry);
+    }
+
+    private void hashJarsConcurrently() {
+        if (jarsToHash.size() < 2) {
+            return;
+        }
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JarEntry>>() {
+            @Override
+            public void execute(BuildOperationQueue<JarEntry> queue) {
+                for (JarEntry jarEntry : jarsToHash) {
+                    queue.add(jarEntry);
+                }
+            }
+        });
+    }
+
+    private interface ClasspathEntry {
+        void collect();
+    }
+
+    private class JarEntry implements ClasspathEntry, RunnableBuildOperation {
+        private final RegularFileSnapshot jarFile;
+        private boolean hashed;
+        private HashCode hash;
+
+        JarEntry(RegularFileSnapshot jarFile, @Nullable HashCode cachedHash) {
+            this.jarFile = jarFile;
+            this.hash = cachedHash;
+            this.hashed = cachedHash != null;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            hash();
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Snapshot classpath entry " + jarFile.getPath());
+        }
+
+        @Override
+        public void collect() {
+            if (!hashed) {
+                hash();
+            }
+            if (hash != null) {
+                builder.collectFileSnapshot(jarFile.withContentHash(hash));
+            }
+        }
+
+        private void hash() {
+            hash = cacheService.hashFile(jarFile, jarHasher, jarHasherConfigurationHash);
+            hashed = true;
         }
     }
 
@@ -128,6 +222,10 @@ public abstract class AbstractClasspathSnapshotBuilder implements VisitingFileCo
 
     @Override
     public FileCollectionSnapshot build() {
+        hashJarsConcurrently();
+        for (ClasspathEntry entry : entries) {
+            entry.collect();
+        }
         return builder.build();
     }
 }
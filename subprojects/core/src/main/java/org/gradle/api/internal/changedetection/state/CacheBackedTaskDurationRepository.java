@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+import javax.annotation.Nullable;
+
+public class CacheBackedTaskDurationRepository implements TaskDurationRepository {
+    private final PersistentIndexedCache<String, Long> durations;
+
+    public CacheBackedTaskDurationRepository(TaskHistoryStore cacheAccess) {
+        this.durations = cacheAccess.createCache("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER, 10000, true);
+    }
+
+    @Nullable
+    @Override
+    public Long getPreviousDuration(String taskPath) {
+        return durations.get(taskPath);
+    }
+
+    @Override
+    public void recordDuration(String taskPath, long durationMillis) {
+        durations.put(taskPath, durationMillis);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.file.DefaultFileHierarchySet;
+import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Holds the normalized hashes of the files in the {@link CachedJarFileStore}s of the Gradle user home, such as the jars of the dependency cache.
+ *
+ * <p>Files in these stores are never changed once they have been added, and the hashes are keyed by the content hash of the file and the configuration of the hasher.
+ * So the runtime and compile classpath hashes of these jars can be shared by all builds and daemons using the Gradle user home, instead of each build
+ * scanning the jars again to populate its own cache.</p>
+ */
+public class CachedJarResourceHashCache {
+    private final PersistentIndexedCache<HashCode, HashCode> cache;
+    private final FileHierarchySet cachedJarLocations;
+
+    public CachedJarResourceHashCache(PersistentIndexedCache<HashCode, HashCode> cache, List<CachedJarFileStore> fileStores) {
+        this.cache = cache;
+        FileHierarchySet cachedJarLocations = DefaultFileHierarchySet.of();
+        for (CachedJarFileStore fileStore : fileStores) {
+            for (File root : fileStore.getFileStoreRoots()) {
+                cachedJarLocations = cachedJarLocations.plus(root);
+            }
+        }
+        this.cachedJarLocations = cachedJarLocations;
+    }
+
+    public PersistentIndexedCache<HashCode, HashCode> getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns true when the file with the given absolute path is located in one of the cached jar file stores.
+     */
+    public boolean isCachedJarFile(String absolutePath) {
+        return cachedJarLocations.contains(absolutePath);
+    }
+}
@@ -29,6 +29,7 @@ import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.HashCodeSerializer;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class CachingFileHasher implements FileHasher {
@@ -37,13 +38,22 @@ public class CachingFileHasher implements FileHasher {
     private final FileSystem fileSystem;
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
+    private final SharedFileHashTable sharedHashes;
 
     public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem) {
+        this(delegate, store, stringInterner, timestampInspector, cacheName, fileSystem, null);
+    }
+
+    /**
+     * @param sharedHashes when not null, file hashes are looked up in this table before the persistent cache, so that processes sharing the table don't need to lock the persistent cache for files another process has already hashed.
+     */
+    public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem, @Nullable SharedFileHashTable sharedHashes) {
         this.delegate = delegate;
         this.fileSystem = fileSystem;
         this.cache = store.createCache(cacheName, String.class, new FileInfoSerializer(), 400000, true);
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
+        this.sharedHashes = sharedHashes;
     }
 
     @Override
@@ -78,9 +88,19 @@ public class CachingFileHasher implements FileHasher {
     private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
+            if (sharedHashes != null) {
+                SharedFileHashTable.Entry entry = sharedHashes.get(absolutePath);
+                if (entry != null && length == entry.getLength() && timestamp == entry.getTimestamp()) {
+                    return new FileInfo(entry.getHash(), length, timestamp);
+                }
+            }
+
             FileInfo info = cache.get(absolutePath);
 
             if (info != null && length == info.length && timestamp == info.timestamp) {
+                if (sharedHashes != null) {
+                    sharedHashes.put(absolutePath, info.hash, length, timestamp);
+                }
                 return info;
             }
         }
@@ -88,11 +108,17 @@ public class CachingFileHasher implements FileHasher {
         HashCode hash = delegate.hash(file);
         FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
+        if (sharedHashes != null) {
+            sharedHashes.put(absolutePath, hash, length, timestamp);
+        }
         return info;
     }
 
     public void discard(String path) {
         cache.remove(path);
+        if (sharedHashes != null) {
+            sharedHashes.remove(path);
+        }
     }
 
     @VisibleForTesting
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.base.Charsets;
+import org.gradle.internal.Factories;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashCode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map of file snapshots that keeps all of its entries encoded in a single byte array, instead of a handful of objects per file.
+ * This is used for the snapshots of task history, which are kept in memory between builds.
+ *
+ * <p>Entries are stored in the order of the original map, as this order matters for some compare strategies. Each path is stored as
+ * the length of the prefix it shares with the previous path followed by the rest of the path, which is compact for the sorted paths
+ * of a directory walk. File hashes are stored as raw bytes.</p>
+ *
+ * <p>Iterating the map decodes one entry at a time. Looking up an entry decodes the whole map, which is then kept softly reachable.</p>
+ */
+class CompactSnapshotMap extends AbstractMap<String, NormalizedFileSnapshot> {
+    private static final int DIR_SNAPSHOT = 1;
+    private static final int MISSING_FILE_SNAPSHOT = 2;
+    private static final int REGULAR_FILE_SNAPSHOT = 3;
+    private static final int SNAPSHOT_MASK = 0x0f;
+
+    private static final int NO_NORMALIZATION = 1 << 4;
+    private static final int DEFAULT_NORMALIZATION = 2 << 4;
+    private static final int SUFFIX_NORMALIZATION = 3 << 4;
+    private static final int INDEXED_NORMALIZATION = 4 << 4;
+    private static final int IGNORED_PATH_NORMALIZATION = 5 << 4;
+    private static final int NORMALIZATION_MASK = 0xf0;
+
+    private final byte[] encoded;
+    private final int size;
+    private final Factory<Map<String, NormalizedFileSnapshot>> decodedFactory = Factories.softReferenceCache(new Factory<Map<String, NormalizedFileSnapshot>>() {
+        @Override
+        public Map<String, NormalizedFileSnapshot> create() {
+            Map<String, NormalizedFileSnapshot> decoded = new LinkedHashMap<String, NormalizedFileSnapshot>(size);
+            for (Entry<String, NormalizedFileSnapshot> entry : entrySet()) {
+                decoded.put(entry.getKey(), entry.getValue());
+            }
+            return decoded;
+        }
+    });
+
+    private CompactSnapshotMap(byte[] encoded, int size) {
+        this.encoded = encoded;
+        this.size = size;
+    }
+
+    public static CompactSnapshotMap of(Map<String, NormalizedFileSnapshot> snapshots) {
+        if (snapshots instanceof CompactSnapshotMap) {
+            return (CompactSnapshotMap) snapshots;
+        }
+        EncodingBuffer buffer = new EncodingBuffer(snapshots.size() * 32);
+        String previousPath = "";
+        for (Entry<String, NormalizedFileSnapshot> entry : snapshots.entrySet()) {
+            String path = entry.getKey();
+            int sharedLength = sharedPrefixLength(previousPath, path);
+            buffer.writeInt(sharedLength);
+            buffer.writeString(path.substring(sharedLength));
+            writeSnapshot(buffer, path, entry.getValue());
+            previousPath = path;
+        }
+        return new CompactSnapshotMap(buffer.toByteArray(), snapshots.size());
+    }
+
+    private static int sharedPrefixLength(String previous, String current) {
+        int max = Math.min(previous.length(), current.length());
+        int length = 0;
+        while (length < max && previous.charAt(length) == current.charAt(length)) {
+            length++;
+        }
+        // Don't split a surrogate pair, so the rest of the path can be encoded on its own
+        if (length > 0 && Character.isHighSurrogate(current.charAt(length - 1))) {
+            length--;
+        }
+        return length;
+    }
+
+    private static void writeSnapshot(EncodingBuffer buffer, String path, NormalizedFileSnapshot value) {
+        int kind;
+        FileContentSnapshot snapshot = value.getSnapshot();
+        if (snapshot instanceof DirContentSnapshot) {
+            kind = DIR_SNAPSHOT;
+        } else if (snapshot instanceof MissingFileContentSnapshot) {
+            kind = MISSING_FILE_SNAPSHOT;
+        } else if (snapshot instanceof FileHashSnapshot) {
+            kind = REGULAR_FILE_SNAPSHOT;
+        } else {
+            throw new AssertionError();
+        }
+
+        String normalizedPath = null;
+        if (value instanceof NonNormalizedFileSnapshot) {
+            kind |= NO_NORMALIZATION;
+        } else if (value instanceof DefaultNormalizedFileSnapshot) {
+            normalizedPath = value.getNormalizedPath();
+            kind |= path.endsWith(normalizedPath) ? SUFFIX_NORMALIZATION : DEFAULT_NORMALIZATION;
+        } else if (value instanceof IndexedNormalizedFileSnapshot) {
+            kind |= INDEXED_NORMALIZATION;
+        } else if (value instanceof IgnoredPathFileSnapshot) {
+            kind |= IGNORED_PATH_NORMALIZATION;
+        } else {
+            throw new AssertionError();
+        }
+
+        buffer.writeByte(kind);
+        if ((kind & SNAPSHOT_MASK) == REGULAR_FILE_SNAPSHOT) {
+            byte[] hash = snapshot.getContentMd5().toByteArray();
+            buffer.writeInt(hash.length);
+            buffer.writeBytes(hash, 0, hash.length);
+        }
+        switch (kind & NORMALIZATION_MASK) {
+            case SUFFIX_NORMALIZATION:
+                buffer.writeInt(normalizedPath.length());
+                break;
+            case DEFAULT_NORMALIZATION:
+                buffer.writeString(normalizedPath);
+                break;
+            case INDEXED_NORMALIZATION:
+                buffer.writeInt(((IndexedNormalizedFileSnapshot) value).getIndex());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of bytes used to encode the entries of this map.
+     */
+    int getEncodedSize() {
+        return encoded.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public NormalizedFileSnapshot get(Object key) {
+        if (size == 0) {
+            return null;
+        }
+        return decodedFactory.create().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, NormalizedFileSnapshot>> entrySet() {
+        return new AbstractSet<Entry<String, NormalizedFileSnapshot>>() {
+            @Override
+            public Iterator<Entry<String, NormalizedFileSnapshot>> iterator() {
+                return new DecodingIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private class DecodingIterator implements Iterator<Entry<String, NormalizedFileSnapshot>> {
+        private int pos;
+        private int remaining = size;
+        private String previousPath = "";
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Entry<String, NormalizedFileSnapshot> next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            int sharedLength = readInt();
+            String path = previousPath.substring(0, sharedLength).concat(readString());
+            previousPath = path;
+
+            int kind = encoded[pos++];
+            FileContentSnapshot snapshot;
+            switch (kind & SNAPSHOT_MASK) {
+                case DIR_SNAPSHOT:
+                    snapshot = DirContentSnapshot.getInstance();
+                    break;
+                case MISSING_FILE_SNAPSHOT:
+                    snapshot = MissingFileContentSnapshot.getInstance();
+                    break;
+                case REGULAR_FILE_SNAPSHOT:
+                    int hashLength = readInt();
+                    snapshot = new FileHashSnapshot(HashCode.fromBytes(Arrays.copyOfRange(encoded, pos, pos + hashLength)));
+                    pos += hashLength;
+                    break;
+                default:
+                    throw new IllegalStateException("Unrecognized file snapshot kind found in encoded snapshots.");
+            }
+
+            NormalizedFileSnapshot normalizedSnapshot;
+            switch (kind & NORMALIZATION_MASK) {
+                case NO_NORMALIZATION:
+                    normalizedSnapshot = new NonNormalizedFileSnapshot(path, snapshot);
+                    break;
+                case DEFAULT_NORMALIZATION:
+                    normalizedSnapshot = new DefaultNormalizedFileSnapshot(readString(), snapshot);
+                    break;
+                case SUFFIX_NORMALIZATION:
+                    normalizedSnapshot = new DefaultNormalizedFileSnapshot(path.substring(path.length() - readInt()), snapshot);
+                    break;
+                case INDEXED_NORMALIZATION:
+                    normalizedSnapshot = new IndexedNormalizedFileSnapshot(path, readInt(), snapshot);
+                    break;
+                case IGNORED_PATH_NORMALIZATION:
+                    normalizedSnapshot = new IgnoredPathFileSnapshot(snapshot);
+                    break;
+                default:
+                    throw new IllegalStateException("Unrecognized path normalization found in encoded snapshots.");
+            }
+            return new SimpleImmutableEntry<String, NormalizedFileSnapshot>(path, normalizedSnapshot);
+        }
+
+        private int readInt() {
+            int value = 0;
+            int shift = 0;
+            while (true) {
+                int b = encoded[pos++];
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        private String readString() {
+            int length = readInt();
+            String value = new String(encoded, pos, length, Charsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class EncodingBuffer {
+        private byte[] bytes;
+        private int count;
+
+        EncodingBuffer(int initialCapacity) {
+            bytes = new byte[Math.max(16, initialCapacity)];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[count++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[count++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[count++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] encoded = value.getBytes(Charsets.UTF_8);
+            writeInt(encoded.length);
+            writeBytes(encoded, 0, encoded.length);
+        }
+
+        void writeBytes(byte[] value, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(value, offset, bytes, count, length);
+            count += length;
+        }
+
+        private void ensureCapacity(int length) {
+            if (count + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + length));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+    }
+}
@@ -17,6 +17,9 @@
 package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.operations.BuildOperationExecutor;
+
+import javax.annotation.Nullable;
 
 /**
  * Builds a {@link FileCollectionSnapshot} for a compile classpath.
@@ -24,8 +27,8 @@ import org.gradle.api.internal.cache.StringInterner;
  * We only take class files in jar files and class files in directories into account.
  */
 public class CompileClasspathSnapshotBuilder extends AbstractClasspathSnapshotBuilder {
-    public CompileClasspathSnapshotBuilder(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, StringInterner stringInterner) {
-        super(classpathResourceHasher, cacheService, stringInterner);
+    public CompileClasspathSnapshotBuilder(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, StringInterner stringInterner, @Nullable BuildOperationExecutor buildOperationExecutor) {
+        super(classpathResourceHasher, cacheService, stringInterner, buildOperationExecutor);
     }
 
     @Override
@@ -32,27 +32,50 @@ import java.io.IOException;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class CrossBuildFileHashCache implements Closeable, TaskHistoryStore {
+    /**
+     * When set to true, file hashes are shared between processes through a {@link SharedFileHashTable} in the cache directory.
+     * There is a table for each hash function, so that processes that hash file content differently do not share hashes.
+     */
+    public static final String SHARED_TABLE_PROPERTY = "org.gradle.internal.file-hashes.shared";
+
     private final PersistentCache cache;
     private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
+    private final SharedFileHashTable sharedFileHashTable;
 
-    public CrossBuildFileHashCache(@Nullable File cacheDir, CacheRepository repository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+    /**
+     * @param hashFunctionName the name of the hash function used to calculate the file hashes stored in this cache.
+     */
+    public CrossBuildFileHashCache(@Nullable File cacheDir, CacheRepository repository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, String hashFunctionName) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
         CacheBuilder cacheBuilder = cacheDir != null ? repository.cache(cacheDir) : repository.cache("fileHashes");
         cache = cacheBuilder
             .withDisplayName("file hash cache")
             .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
             .open();
+        sharedFileHashTable = Boolean.getBoolean(SHARED_TABLE_PROPERTY) ? new SharedFileHashTable(new File(cache.getBaseDir(), "fileHashes-" + hashFunctionName + ".table")) : null;
+    }
+
+    @Nullable
+    public SharedFileHashTable getSharedFileHashTable() {
+        return sharedFileHashTable;
     }
 
     @Override
     public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Class<K> keyType, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses));
+                .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses))
+                .memoryMapped(Boolean.getBoolean(DefaultTaskHistoryStore.MEMORY_MAPPED_PROPERTY));
         return cache.createCache(parameters);
     }
 
     @Override
     public void close() throws IOException {
-        cache.close();
+        try {
+            if (sharedFileHashTable != null) {
+                sharedFileHashTable.close();
+            }
+        } finally {
+            cache.close();
+        }
     }
 }
@@ -25,6 +25,7 @@ import org.gradle.api.internal.OverlappingOutputs;
 import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata;
 
 import javax.annotation.Nullable;
+import java.util.Map;
 
 @NonNullApi
 public class CurrentTaskExecution extends AbstractTaskExecution {
@@ -109,14 +110,29 @@ public class CurrentTaskExecution extends AbstractTaskExecution {
             getTaskActionImplementations(),
             getInputProperties(),
             getOutputPropertyNamesForCacheKey(),
-            inputFilesSnapshot,
-            discoveredInputFilesSnapshot,
-            outputFilesSnapshot,
+            compact(inputFilesSnapshot),
+            compact(discoveredInputFilesSnapshot),
+            compact(outputFilesSnapshot),
             successful,
             originExecutionMetadata
         );
     }
 
+    private static ImmutableSortedMap<String, FileCollectionSnapshot> compact(ImmutableSortedMap<String, FileCollectionSnapshot> snapshots) {
+        ImmutableSortedMap.Builder<String, FileCollectionSnapshot> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, FileCollectionSnapshot> entry : snapshots.entrySet()) {
+            builder.put(entry.getKey(), compact(entry.getValue()));
+        }
+        return builder.build();
+    }
+
+    private static FileCollectionSnapshot compact(FileCollectionSnapshot snapshot) {
+        if (snapshot instanceof DefaultFileCollectionSnapshot) {
+            return ((DefaultFileCollectionSnapshot) snapshot).compact();
+        }
+        return snapshot;
+    }
+
     @Override
     public OriginTaskExecutionMetadata getOriginExecutionMetadata() {
         return originExecutionMetadata;
@@ -21,15 +21,27 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.tasks.CompileClasspathNormalizer;
 import org.gradle.api.tasks.FileNormalizer;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
+
 public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSnapshotter implements CompileClasspathSnapshotter {
     private final ResourceHasher classpathResourceHasher;
     private final ResourceSnapshotterCacheService cacheService;
+    private final BuildOperationExecutor buildOperationExecutor;
 
     public DefaultCompileClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner) {
+        this(cacheService, directoryFileTreeFactory, fileSystemSnapshotter, stringInterner, null);
+    }
+
+    /**
+     * Creates a snapshotter which hashes the jars of a classpath concurrently using the given executor.
+     */
+    public DefaultCompileClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner, @Nullable BuildOperationExecutor buildOperationExecutor) {
         super(stringInterner, directoryFileTreeFactory, fileSystemSnapshotter);
         this.cacheService = cacheService;
+        this.buildOperationExecutor = buildOperationExecutor;
         this.classpathResourceHasher = new CachingResourceHasher(new AbiExtractingClasspathResourceHasher(), cacheService);
     }
 
@@ -37,7 +49,7 @@ public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSn
     public FileCollectionSnapshot snapshot(FileCollection files, PathNormalizationStrategy pathNormalizationStrategy, InputNormalizationStrategy inputNormalizationStrategy) {
         return super.snapshot(
             files,
-            new CompileClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner()));
+            new CompileClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner(), buildOperationExecutor));
     }
 
     @Override
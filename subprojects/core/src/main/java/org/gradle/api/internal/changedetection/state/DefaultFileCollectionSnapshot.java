@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -40,7 +41,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
+public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot, WithEstimatedRetainedSize {
+    private static final int ESTIMATED_ENTRY_SIZE = 256;
+
     private final Map<String, NormalizedFileSnapshot> snapshots;
     private final TaskFilePropertyCompareStrategy compareStrategy;
     private final boolean pathIsAbsolute;
@@ -74,6 +77,25 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
         return snapshots;
     }
 
+    /**
+     * Returns a snapshot of the same files that keeps its entries in a compact encoded form, which is used when the snapshot is retained as task history.
+     * The aggregate hash is calculated before the entries are encoded, so comparing with an unchanged snapshot does not need to decode them.
+     */
+    public DefaultFileCollectionSnapshot compact() {
+        if (snapshots instanceof CompactSnapshotMap) {
+            return this;
+        }
+        return new DefaultFileCollectionSnapshot(CompactSnapshotMap.of(snapshots), getHash(), compareStrategy, pathIsAbsolute);
+    }
+
+    @Override
+    public long getEstimatedRetainedSize() {
+        if (snapshots instanceof CompactSnapshotMap) {
+            return 128 + ((CompactSnapshotMap) snapshots).getEncodedSize();
+        }
+        return 128 + (long) snapshots.size() * ESTIMATED_ENTRY_SIZE;
+    }
+
     public Map<String, FileContentSnapshot> getContentSnapshots() {
         return Maps.transformValues(snapshots, new Function<NormalizedFileSnapshot, FileContentSnapshot>() {
             @Override
@@ -88,9 +110,27 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
         return snapshots.isEmpty();
     }
 
+    /**
+     * Compares the aggregate hashes of the snapshots first, and only compares the individual files when they differ.
+     * Nothing is compared until the first change is requested, so the changes of a property that is never looked at are never calculated.
+     */
     @Override
-    public Iterator<TaskStateChange> iterateContentChangesSince(FileCollectionSnapshot oldSnapshot, String fileType, boolean includeAdded) {
-        if (includeAdded && hashCode != null && getHash().equals(oldSnapshot.getHash())) {
+    public Iterator<TaskStateChange> iterateContentChangesSince(final FileCollectionSnapshot oldSnapshot, final String fileType, final boolean includeAdded) {
+        return new AbstractIterator<TaskStateChange>() {
+            private Iterator<TaskStateChange> changes;
+
+            @Override
+            protected TaskStateChange computeNext() {
+                if (changes == null) {
+                    changes = doIterateContentChangesSince(oldSnapshot, fileType, includeAdded);
+                }
+                return changes.hasNext() ? changes.next() : endOfData();
+            }
+        };
+    }
+
+    private Iterator<TaskStateChange> doIterateContentChangesSince(FileCollectionSnapshot oldSnapshot, String fileType, boolean includeAdded) {
+        if (getHash().equals(oldSnapshot.getHash())) {
             return Iterators.emptyIterator();
         }
         return compareStrategy.iterateContentChangesSince(snapshots, oldSnapshot.getSnapshots(), fileType, pathIsAbsolute, includeAdded);
@@ -157,18 +197,16 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
             TaskFilePropertyCompareStrategy compareStrategy = TaskFilePropertyCompareStrategy.values()[decoder.readSmallInt()];
             boolean hasHash = decoder.readBoolean();
             HashCode hash = hasHash ? hashCodeSerializer.read(decoder) : null;
-            Map<String, NormalizedFileSnapshot> snapshots = snapshotMapSerializer.read(decoder);
+            Map<String, NormalizedFileSnapshot> snapshots = CompactSnapshotMap.of(snapshotMapSerializer.read(decoder));
             boolean pathIsUnique = decoder.readBoolean();
             return new DefaultFileCollectionSnapshot(snapshots, hash, compareStrategy, pathIsUnique);
         }
 
         public void write(Encoder encoder, DefaultFileCollectionSnapshot value) throws Exception {
             encoder.writeSmallInt(value.compareStrategy.ordinal());
-            boolean hasHash = value.hashCode != null;
-            encoder.writeBoolean(hasHash);
-            if (hasHash) {
-                hashCodeSerializer.write(encoder, value.getHash());
-            }
+            // Always store the aggregate hash, so that the next up-to-date check can compare it without looking at the individual files
+            encoder.writeBoolean(true);
+            hashCodeSerializer.write(encoder, value.getHash());
             snapshotMapSerializer.write(encoder, value.snapshots);
             encoder.writeBoolean(value.pathIsAbsolute);
         }
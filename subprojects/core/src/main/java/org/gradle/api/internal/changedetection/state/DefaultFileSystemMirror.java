@@ -16,34 +16,109 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.io.Files;
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.api.internal.tasks.execution.TaskOutputChangesListener;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.DefaultFileHierarchySet;
 import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * See {@link DefaultFileSystemSnapshotter} for some more details
+ *
+ * When created with a {@link FileWatcherFactory}, the state for files that do not live in an append-only cache is retained between builds.
+ * The directory containing a location is watched before the state of the location is calculated, and the state is discarded when the file system
+ * reports a change to the location. Reported changes are collected and applied at the next lookup or task output change.
+ *
+ * The file system reports changes asynchronously. At the start of a build, a marker file is written and the retained state is only used once the
+ * change to the marker file has been reported, as the changes made before it have been reported by then. This relies on the watcher reporting
+ * changes in the order they were made, and the state is discarded when the change to the marker file is not reported in time.
  */
-public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener {
+public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener, Stoppable {
+    /**
+     * Set this system property to {@code true} to retain the state between builds in the daemon.
+     * This is only supported on Linux.
+     */
+    public static final String RETAIN_STATE_PROPERTY = "org.gradle.internal.filesystem.mirror.retain";
+
+    private static final Logger LOGGER = Logging.getLogger(DefaultFileSystemMirror.class);
+    private static final long DEFAULT_PENDING_CHANGES_TIMEOUT_MILLIS = 2000;
+
     // Maps from interned absolute path for a file to known details for the file.
-    private final Map<String, FileSnapshot> files = new ConcurrentHashMap<String, FileSnapshot>();
+    // The maps for files that do not live in an append-only cache are sorted, so the entries for the descendants of a location can be found by prefix.
+    private final ConcurrentNavigableMap<String, FileSnapshot> files = new ConcurrentSkipListMap<String, FileSnapshot>();
     private final Map<String, FileSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSnapshot>();
     // Maps from interned absolute path for a directory to known details for the directory.
-    private final Map<String, FileTreeSnapshot> trees = new ConcurrentHashMap<String, FileTreeSnapshot>();
+    private final ConcurrentNavigableMap<String, FileTreeSnapshot> trees = new ConcurrentSkipListMap<String, FileTreeSnapshot>();
     private final Map<String, FileTreeSnapshot> cacheTrees = new ConcurrentHashMap<String, FileTreeSnapshot>();
     // Maps from interned absolute path to a snapshot
-    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+    private final ConcurrentNavigableMap<String, Snapshot> snapshots = new ConcurrentSkipListMap<String, Snapshot>();
     private final Map<String, Snapshot> cacheSnapshots = new ConcurrentHashMap<String, Snapshot>();
     private final FileHierarchySet cachedDirectories;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final FileWatcherFactory fileWatcherFactory;
+    private final File markerFile;
+    private final long pendingChangesTimeoutMillis;
+    // Locations whose state was stored before they were watched, this state is discarded when the build completes
+    private final Set<String> unwatchedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // Changes reported since the start of the current build, these are applied again at the start of the next build
+    // as the state for a location may be stored after the change to the location has been reported
+    private final Set<File> reportedChanges = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    // Changes reported since they were last applied
+    private final Set<File> pendingChanges = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    private volatile boolean changesOverflowed;
+    private volatile FileHierarchySet watchedRoots = DefaultFileHierarchySet.of();
+    private volatile boolean watchingFailed;
+    private final Object watchLock = new Object();
+    // The following fields are guarded by watchLock
+    private FileWatcher fileWatcher;
+    private long markerWritten;
+    private long markerReported;
 
     public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores) {
+        this(fileStores, null, null);
+    }
+
+    /**
+     * @param markerDirectory a directory that is only used by this mirror, to write the marker file to.
+     */
+    public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, @Nullable FileWatcherFactory fileWatcherFactory, @Nullable File markerDirectory) {
+        this(fileStores, fileWatcherFactory, markerDirectory, DEFAULT_PENDING_CHANGES_TIMEOUT_MILLIS);
+    }
+
+    DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, @Nullable FileWatcherFactory fileWatcherFactory, @Nullable File markerDirectory, long pendingChangesTimeoutMillis) {
+        if (fileWatcherFactory != null && markerDirectory == null) {
+            throw new IllegalArgumentException("A marker directory is required to retain state between builds.");
+        }
         FileHierarchySet cachedDirectories = DefaultFileHierarchySet.of();
         for (CachedJarFileStore fileStore : fileStores) {
             for (File file : fileStore.getFileStoreRoots()) {
@@ -51,6 +126,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
             }
         }
         this.cachedDirectories = cachedDirectories;
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.markerFile = markerDirectory == null ? null : new File(markerDirectory, "marker").getAbsoluteFile();
+        this.pendingChangesTimeoutMillis = pendingChangesTimeoutMillis;
     }
 
     @Nullable
@@ -59,9 +137,10 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         // Could potentially also look whether we have the details for an ancestor directory tree
         // Could possibly infer that the path refers to a directory, if we have details for a descendant path (and it's not a missing file)
         if (cachedDirectories.contains(path)) {
-            return cacheFiles.get(path);
+            return record(cacheFiles.get(path));
         } else {
-            return files.get(path);
+            applyPendingChanges();
+            return watchOnMiss(path, files.get(path));
         }
     }
 
@@ -70,6 +149,7 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(file.getPath())) {
             cacheFiles.put(file.getPath(), file);
         } else {
+            watchBeforePut(file.getPath());
             files.put(file.getPath(), file);
         }
     }
@@ -78,9 +158,10 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
     @Override
     public Snapshot getContent(String path) {
         if (cachedDirectories.contains(path)) {
-            return cacheSnapshots.get(path);
+            return record(cacheSnapshots.get(path));
         } else {
-            return snapshots.get(path);
+            applyPendingChanges();
+            return watchOnMiss(path, snapshots.get(path));
         }
     }
 
@@ -89,6 +170,7 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(path)) {
             cacheSnapshots.put(path, snapshot);
         } else {
+            watchBeforePut(path);
             snapshots.put(path, snapshot);
         }
     }
@@ -99,9 +181,10 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         // Could potentially also look whether we have the details for an ancestor directory tree
         // Could possibly also short-circuit some scanning if we have details for some sub trees
         if (cachedDirectories.contains(path)) {
-            return cacheTrees.get(path);
+            return record(cacheTrees.get(path));
         } else {
-            return trees.get(path);
+            applyPendingChanges();
+            return watchOnMiss(path, trees.get(path));
         }
     }
 
@@ -110,31 +193,278 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         if (cachedDirectories.contains(directory.getPath())) {
             cacheTrees.put(directory.getPath(), directory);
         } else {
+            watchBeforePut(directory.getPath());
             trees.put(directory.getPath(), directory);
         }
     }
 
     @Override
     public void beforeTaskOutputChanged() {
-        // When the task outputs are generated, throw away all state for files that do not live in an append-only cache.
-        // This is intentionally very simple, to be improved later
+        // When we don't know which outputs are about to be generated, throw away all state for files that do not live in an append-only cache.
+        invalidateAll();
+    }
+
+    @Override
+    public void beforeTaskOutputChanged(Iterable<File> affectedOutputs) {
+        applyPendingChanges();
+        invalidate(affectedOutputs);
+    }
+
+    private void applyPendingChanges() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        List<File> changes = new ArrayList<File>(pendingChanges);
+        pendingChanges.removeAll(changes);
+        invalidate(changes);
+    }
+
+    private void invalidate(Iterable<File> affectedLocations) {
+        // Throw away the state for the affected locations, for their descendants and for their ancestors.
+        // A snapshot of a tree or of the content of an ancestor includes the affected locations, and an ancestor may be created when the outputs are generated.
+        Set<String> affectedRoots = new HashSet<String>();
+        Set<String> affectedAncestors = new HashSet<String>();
+        for (File affectedLocation : affectedLocations) {
+            File absoluteFile = affectedLocation.getAbsoluteFile();
+            affectedRoots.add(absoluteFile.getPath());
+            for (File ancestor = absoluteFile.getParentFile(); ancestor != null; ancestor = ancestor.getParentFile()) {
+                if (!affectedAncestors.add(ancestor.getPath())) {
+                    break;
+                }
+            }
+        }
+        long count = invalidate(files, affectedRoots, affectedAncestors)
+            + invalidate(trees, affectedRoots, affectedAncestors)
+            + invalidate(snapshots, affectedRoots, affectedAncestors);
+        invalidated.addAndGet(count);
+    }
+
+    private void invalidateAll() {
+        pendingChanges.clear();
+        invalidated.addAndGet(files.size() + trees.size() + snapshots.size());
         files.clear();
         trees.clear();
         snapshots.clear();
+        unwatchedPaths.clear();
+    }
+
+    private static int invalidate(NavigableMap<String, ?> entries, Collection<String> affectedRoots, Collection<String> affectedAncestors) {
+        int count = 0;
+        for (String root : affectedRoots) {
+            if (entries.remove(root) != null) {
+                count++;
+            }
+            Iterator<String> descendants = descendants(entries, root).keySet().iterator();
+            while (descendants.hasNext()) {
+                descendants.next();
+                descendants.remove();
+                count++;
+            }
+        }
+        for (String ancestor : affectedAncestors) {
+            if (entries.remove(ancestor) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the entries for the paths below the given path, which are the paths starting with the given path and a separator.
+     */
+    private static NavigableMap<String, ?> descendants(NavigableMap<String, ?> entries, String path) {
+        String prefix = path.endsWith(File.separator) ? path : path + File.separatorChar;
+        String end = prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1);
+        return entries.subMap(prefix, true, end, false);
+    }
+
+    private <T> T record(@Nullable T value) {
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    @Nullable
+    private <T> T watchOnMiss(String path, @Nullable T value) {
+        if (value == null) {
+            // The caller is about to calculate the state, so start watching the location first
+            watch(path);
+        }
+        return record(value);
+    }
+
+    private void watchBeforePut(String path) {
+        if (!watch(path)) {
+            unwatchedPaths.add(path);
+        }
+    }
+
+    /**
+     * Starts watching the directory containing the given location, when state is retained between builds.
+     * Watching the directory also covers the siblings of the location, so that they don't have to be watched one by one.
+     *
+     * @return true if the location was already being watched.
+     */
+    private boolean watch(String path) {
+        if (fileWatcherFactory == null || watchingFailed || watchedRoots.contains(path)) {
+            return true;
+        }
+        synchronized (watchLock) {
+            if (watchingFailed || watchedRoots.contains(path)) {
+                return true;
+            }
+            try {
+                File file = new File(path);
+                File directory = file.getParentFile() == null ? file : file.getParentFile();
+                startWatcher().watch(FileSystemSubset.builder().add(directory).build());
+                watchedRoots = watchedRoots.plus(directory);
+            } catch (Exception e) {
+                stopWatching(e);
+            }
+            return false;
+        }
+    }
+
+    private FileWatcher startWatcher() throws IOException {
+        if (fileWatcher == null) {
+            fileWatcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                @Override
+                public void execute(Throwable failure) {
+                    stopWatching(failure);
+                }
+            }, new FileWatcherListener() {
+                @Override
+                public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                    DefaultFileSystemMirror.this.onChange(event);
+                }
+            });
+            Files.createParentDirs(markerFile);
+            fileWatcher.watch(FileSystemSubset.builder().add(markerFile.getParentFile()).build());
+        }
+        return fileWatcher;
+    }
+
+    private void onChange(FileWatcherEvent event) {
+        File file = event.getFile();
+        if (markerFile.equals(file)) {
+            synchronized (watchLock) {
+                markerReported = markerWritten;
+                watchLock.notifyAll();
+            }
+        } else if (event.getType() == FileWatcherEvent.Type.UNDEFINED || file == null) {
+            changesOverflowed = true;
+            invalidateAll();
+        } else {
+            reportedChanges.add(file);
+            pendingChanges.add(file);
+        }
+    }
+
+    /**
+     * Waits until the changes made before this method was called have been reported, by writing the marker file and waiting for its change to be reported.
+     *
+     * @return true if the changes have been reported.
+     */
+    private boolean awaitPendingChanges() {
+        synchronized (watchLock) {
+            if (watchingFailed || fileWatcher == null) {
+                return false;
+            }
+            try {
+                long marker = ++markerWritten;
+                Files.write(String.valueOf(marker).getBytes(), markerFile);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pendingChangesTimeoutMillis);
+                while (markerReported < marker) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    watchLock.wait(remaining);
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private void stopWatching(Throwable failure) {
+        LOGGER.info("Could not watch the file system for changes. File system state will not be retained between builds.", failure);
+        synchronized (watchLock) {
+            watchingFailed = true;
+            if (fileWatcher != null) {
+                fileWatcher.stop();
+                fileWatcher = null;
+            }
+            watchedRoots = DefaultFileHierarchySet.of();
+        }
+        // Changes may have been missed
+        invalidateAll();
+    }
+
+    private boolean isRetainingState() {
+        return fileWatcherFactory != null && !watchingFailed;
     }
 
     @Override
     public void afterStart() {
+        if (!isRetainingState() || (files.isEmpty() && trees.isEmpty() && snapshots.isEmpty())) {
+            changesOverflowed = false;
+            reportedChanges.clear();
+            pendingChanges.clear();
+            return;
+        }
+        boolean changesReported = awaitPendingChanges();
+        boolean overflowed = changesOverflowed;
+        changesOverflowed = false;
+        List<File> changes = new ArrayList<File>(reportedChanges);
+        reportedChanges.removeAll(changes);
+        pendingChanges.removeAll(changes);
+        if (!changesReported) {
+            LOGGER.info("Changes to the file system were not reported in time. Discarding file system state retained from the previous build.");
+            invalidateAll();
+        } else if (overflowed) {
+            invalidateAll();
+        } else if (!changes.isEmpty()) {
+            // State may have been stored after a change to its location was reported, so discard it again
+            invalidate(changes);
+        }
     }
 
     @Override
     public void beforeComplete() {
-        // We throw away all state between builds
-        files.clear();
+        LOGGER.info("File system mirror: {} hits, {} misses, {} entries invalidated.", hits.getAndSet(0), misses.getAndSet(0), invalidated.getAndSet(0));
+
         cacheFiles.clear();
-        trees.clear();
         cacheTrees.clear();
-        snapshots.clear();
         cacheSnapshots.clear();
+        if (!isRetainingState()) {
+            // We throw away all state between builds, unless the file system is being watched for changes
+            files.clear();
+            trees.clear();
+            snapshots.clear();
+        } else {
+            // A change made before a location was watched is not reported
+            files.keySet().removeAll(unwatchedPaths);
+            trees.keySet().removeAll(unwatchedPaths);
+            snapshots.keySet().removeAll(unwatchedPaths);
+        }
+        unwatchedPaths.clear();
+    }
+
+    @Override
+    public void stop() {
+        synchronized (watchLock) {
+            if (fileWatcher != null) {
+                fileWatcher.stop();
+                fileWatcher = null;
+            }
+        }
     }
 }
@@ -42,6 +42,7 @@ import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
@@ -67,13 +68,22 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     private final ProducerGuard<String> producingTrees = ProducerGuard.striped();
     private final ProducerGuard<String> producingAllSnapshots = ProducerGuard.striped();
     private final DefaultGenericFileCollectionSnapshotter snapshotter;
+    private final ParallelDirectoryWalker directoryWalker;
 
     public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+        this(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, null);
+    }
+
+    /**
+     * @param directoryWalker used to walk directory trees in parallel when enabled, otherwise trees are walked on the calling thread.
+     */
+    public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, @Nullable ParallelDirectoryWalker directoryWalker) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileSystemMirror = fileSystemMirror;
+        this.directoryWalker = directoryWalker != null && directoryWalker.isEnabled() ? directoryWalker : null;
         snapshotter = new DefaultGenericFileCollectionSnapshotter(stringInterner, directoryFileTreeFactory, this);
     }
 
@@ -188,8 +198,7 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
 
     private FileTreeSnapshot snapshotAndCache(DirectoryFileTree directoryTree) {
         String path = internPath(directoryTree.getDir());
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
+        List<FileSnapshot> elements = walk(directoryTree);
         ImmutableList<FileSnapshot> descendants = ImmutableList.copyOf(elements);
         DirectoryTreeDetails snapshot = new DirectoryTreeDetails(path, descendants);
         fileSystemMirror.putDirectory(snapshot);
@@ -202,9 +211,18 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
      */
     private FileTreeSnapshot snapshotWithoutCaching(DirectoryFileTree directoryTree) {
         String path = directoryTree.getDir().getAbsolutePath();
+        List<FileSnapshot> elements = walk(directoryTree);
+        return new DirectoryTreeDetails(path, elements);
+    }
+
+    private List<FileSnapshot> walk(DirectoryFileTree directoryTree) {
+        File dir = directoryTree.getDir();
+        if (directoryWalker != null && dir.isDirectory()) {
+            return directoryWalker.walk(dir, directoryTree.getPatterns().getAsSpec(), new SnapshotFactoryImpl());
+        }
         List<FileSnapshot> elements = Lists.newArrayList();
         directoryTree.visit(new FileVisitorImpl(elements));
-        return new DirectoryTreeDetails(path, elements);
+        return elements;
     }
 
     private FileTreeSnapshot filterSnapshot(FileTreeSnapshot snapshot, PatternSet patterns) {
@@ -280,7 +298,19 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
         }
     }
 
-    private class FileVisitorImpl implements FileVisitor {
+    private class SnapshotFactoryImpl implements ParallelDirectoryWalker.SnapshotFactory {
+        @Override
+        public FileSnapshot directorySnapshot(FileVisitDetails dirDetails) {
+            return new DirectoryFileSnapshot(internPath(dirDetails.getFile()), dirDetails.getRelativePath(), false);
+        }
+
+        @Override
+        public FileSnapshot fileSnapshot(FileVisitDetails fileDetails) {
+            return new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, DefaultFileSystemSnapshotter.this.fileSnapshot(fileDetails));
+        }
+    }
+
+    private class FileVisitorImpl extends SnapshotFactoryImpl implements FileVisitor {
         private final List<FileSnapshot> fileTreeElements;
 
         FileVisitorImpl(List<FileSnapshot> fileTreeElements) {
@@ -289,12 +319,12 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
 
         @Override
         public void visitDir(FileVisitDetails dirDetails) {
-            fileTreeElements.add(new DirectoryFileSnapshot(internPath(dirDetails.getFile()), dirDetails.getRelativePath(), false));
+            fileTreeElements.add(directorySnapshot(dirDetails));
         }
 
         @Override
         public void visitFile(FileVisitDetails fileDetails) {
-            fileTreeElements.add(new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
+            fileTreeElements.add(fileSnapshot(fileDetails));
         }
     }
 }
@@ -28,6 +28,11 @@ import java.io.Closeable;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
+    /**
+     * When set, the task history and file hash caches access their files through memory mapped regions.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY = "org.gradle.internal.cache.memory-mapped";
+
     private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
     private final PersistentCache cache;
 
@@ -47,7 +52,8 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
     @Override
     public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Class<K> keyType, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses));
+                .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses))
+                .memoryMapped(Boolean.getBoolean(MEMORY_MAPPED_PROPERTY));
         return cache.createCache(parameters);
     }
 }
@@ -28,7 +28,7 @@ import javax.annotation.Nonnull;
  * State of a task when it was executed.
  */
 @NonNullApi
-public class HistoricalTaskExecution extends AbstractTaskExecution {
+public class HistoricalTaskExecution extends AbstractTaskExecution implements WithEstimatedRetainedSize {
 
     private final boolean successful;
     private final OriginTaskExecutionMetadata originExecutionMetadata;
@@ -80,4 +80,21 @@ public class HistoricalTaskExecution extends AbstractTaskExecution {
     public ImmutableSortedMap<String, FileCollectionSnapshot> getOutputFilesSnapshot() {
         return outputFilesSnapshot;
     }
+
+    @Override
+    public long getEstimatedRetainedSize() {
+        long size = 512 + 128L * getInputProperties().size();
+        size += estimateSizeOf(inputFilesSnapshot.values());
+        size += estimateSizeOf(outputFilesSnapshot.values());
+        size += RetainedSizeWeigher.estimateSize(discoveredInputFilesSnapshot);
+        return size;
+    }
+
+    private static long estimateSizeOf(Iterable<FileCollectionSnapshot> snapshots) {
+        long size = 0;
+        for (FileCollectionSnapshot snapshot : snapshots) {
+            size += 64 + RetainedSizeWeigher.estimateSize(snapshot);
+        }
+        return size;
+    }
 }
@@ -16,8 +16,13 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import org.gradle.api.Transformer;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -33,6 +38,8 @@ import org.gradle.cache.internal.CrossProcessSynchronizingCache;
 import org.gradle.cache.internal.HeapProportionalCacheSizer;
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,16 +47,67 @@ import java.util.concurrent.atomic.AtomicReference;
  * The in-memory cache is invalidated when the backing cache is changed by another process.
  *
  * Also decorates each cache so that updates to the backing cache are made asynchronously.
+ *
+ * By default, the in-memory cache of each cache keeps a number of entries proportional to the heap size. When a memory budget is set with
+ * the {@value #MEMORY_BUDGET_PROPERTY} system property, all caches keep their entries in a single in-memory cache instead. This cache is limited
+ * by the estimated size of its entries, see {@link WithEstimatedRetainedSize}, and evicts the least recently used entries of all caches first.
  */
 public class InMemoryCacheDecoratorFactory {
+    /**
+     * The percentage of the maximum heap size to use for the in-memory caches of all caches.
+     */
+    public static final String MEMORY_BUDGET_PROPERTY = "org.gradle.internal.cache.in-memory.budget";
+
     private final static Logger LOG = Logging.getLogger(InMemoryCacheDecoratorFactory.class);
     private final boolean longLivingProcess;
     private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
     private final CrossBuildInMemoryCache<String, CacheDetails> caches;
+    private final Cache<Object, Object> sharedEntries;
+    private final Map<String, Cache<Object, Object>> inMemoryCaches = new ConcurrentHashMap<String, Cache<Object, Object>>();
 
     public InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory) {
+        this(longLivingProcess, cacheFactory, memoryBudgetFromSystemProperty());
+    }
+
+    /**
+     * @param memoryBudget the number of bytes that the in-memory caches of all caches may use, or 0 to limit the number of entries of each cache instead.
+     */
+    @VisibleForTesting
+    InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory, long memoryBudget) {
         this.longLivingProcess = longLivingProcess;
         caches = cacheFactory.newCache();
+        if (memoryBudget > 0) {
+            LOG.debug("Creating shared in-memory store for caches (memory budget: {} bytes)", memoryBudget);
+            sharedEntries = CacheBuilder.newBuilder()
+                .maximumWeight(memoryBudget)
+                .weigher(new RetainedSizeWeigher())
+                .removalListener(new PartitionEvictionListener())
+                .build();
+        } else {
+            sharedEntries = null;
+        }
+    }
+
+    private static long memoryBudgetFromSystemProperty() {
+        int percentage = Integer.getInteger(MEMORY_BUDGET_PROPERTY, 0);
+        if (percentage <= 0) {
+            return 0;
+        }
+        if (percentage >= 100) {
+            throw new IllegalArgumentException("The in-memory cache budget must be less than 100% of the heap, but was " + percentage + "%.");
+        }
+        return Runtime.getRuntime().maxMemory() / 100 * percentage;
+    }
+
+    /**
+     * Returns the hit and eviction statistics of all in-memory caches created by this factory.
+     */
+    public CacheStats getStatistics() {
+        CacheStats statistics = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (Cache<Object, Object> cache : inMemoryCaches.values()) {
+            statistics = statistics.plus(cache.stats());
+        }
+        return statistics;
     }
 
     public CacheDecorator decorator(final int maxEntriesToKeepInMemory, final boolean cacheInMemoryForShortLivedProcesses) {
@@ -84,10 +142,16 @@ public class InMemoryCacheDecoratorFactory {
     }
 
     private Cache<Object, Object> createInMemoryCache(String cacheId, int maxSize) {
-        LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
-        Cache<Object, Object> inMemoryCache = cacheBuilder.build();
-        evictionListener.setCache(inMemoryCache);
+        Cache<Object, Object> inMemoryCache;
+        if (sharedEntries != null) {
+            inMemoryCache = new PartitionedInMemoryCache(cacheId, sharedEntries);
+        } else {
+            LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
+            final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
+            inMemoryCache = cacheBuilder.build();
+            evictionListener.setCache(inMemoryCache);
+        }
+        inMemoryCaches.put(cacheId, inMemoryCache);
         return inMemoryCache;
     }
 
@@ -138,4 +202,13 @@ public class InMemoryCacheDecoratorFactory {
             this.lockState = lockState;
         }
     }
+
+    private static class PartitionEvictionListener implements RemovalListener<Object, Object> {
+        @Override
+        public void onRemoval(RemovalNotification<Object, Object> notification) {
+            if (notification.getCause() == RemovalCause.SIZE) {
+                ((PartitionedInMemoryCache.PartitionKey) notification.getKey()).getPartition().recordEviction();
+            }
+        }
+    }
 }
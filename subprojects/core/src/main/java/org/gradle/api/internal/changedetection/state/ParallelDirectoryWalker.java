@@ -0,0 +1,282 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.api.internal.file.UnauthorizedFileVisitDetails;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Walks a directory tree using a bounded fork/join pool, so that the subdirectories of a tree are listed and their files are hashed in parallel.
+ *
+ * The result is assembled in the same order as a sequential walk by {@link org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker} visits the tree: the children
+ * of a directory in the order they are listed, each subdirectory followed by its contents. The result therefore does not depend on how the work was scheduled,
+ * or on whether the tree was walked in parallel.
+ *
+ * Like {@link org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker}, symbolic links are followed and a link to a directory that is being walked is skipped.
+ */
+public class ParallelDirectoryWalker implements Stoppable {
+    /**
+     * The number of threads used to walk directory trees. A value of 1 or less disables parallel walking, which is the default.
+     */
+    public static final String PARALLELISM_PROPERTY = "org.gradle.internal.snapshotting.parallelism";
+
+    private final FileSystem fileSystem;
+    private final int parallelism;
+    private final Object lock = new Object();
+    private ForkJoinPool pool;
+    private boolean stopped;
+
+    public ParallelDirectoryWalker(FileSystem fileSystem, int parallelism) {
+        this.fileSystem = fileSystem;
+        this.parallelism = parallelism;
+    }
+
+    public static int defaultParallelism() {
+        return Integer.getInteger(PARALLELISM_PROPERTY, 1);
+    }
+
+    public boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    /**
+     * Visits the contents of the given directory, but not the directory itself, and returns the snapshots created by the given factory.
+     * The factory is called concurrently from multiple threads.
+     */
+    public List<FileSnapshot> walk(File rootDir, Spec<? super FileTreeElement> spec, SnapshotFactory factory) {
+        WalkState state = new WalkState(spec, factory);
+        Path root = rootDir.toPath();
+        BasicFileAttributes rootAttributes;
+        try {
+            rootAttributes = Files.readAttributes(root, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not list contents of directory '%s'.", rootDir), e);
+        }
+        try {
+            return getPool().invoke(new WalkDirectory(root, RelativePath.EMPTY_ROOT, new Ancestor(root, rootAttributes.fileKey(), null), state));
+        } catch (RuntimeException e) {
+            // The fork/join framework may rethrow a copy of the failure, so prefer the original one
+            RuntimeException failure = state.failure.get();
+            throw failure != null ? failure : e;
+        }
+    }
+
+    private ForkJoinPool getPool() {
+        synchronized (lock) {
+            if (stopped) {
+                throw new IllegalStateException("Cannot walk directory trees after the walker has been stopped.");
+            }
+            if (pool == null) {
+                pool = new ForkJoinPool(parallelism);
+            }
+            return pool;
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    public interface SnapshotFactory {
+        FileSnapshot directorySnapshot(FileVisitDetails dirDetails);
+
+        FileSnapshot fileSnapshot(FileVisitDetails fileDetails);
+    }
+
+    private static class WalkState {
+        private final Spec<? super FileTreeElement> spec;
+        private final SnapshotFactory factory;
+        private final AtomicBoolean stopFlag = new AtomicBoolean();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        WalkState(Spec<? super FileTreeElement> spec, SnapshotFactory factory) {
+            this.spec = spec;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * A directory that is being walked, and the directories that contain it.
+     */
+    private static class Ancestor {
+        private final Path dir;
+        private final Object fileKey;
+        private final Ancestor parent;
+
+        Ancestor(Path dir, Object fileKey, Ancestor parent) {
+            this.dir = dir;
+            this.fileKey = fileKey;
+            this.parent = parent;
+        }
+
+        boolean isLoop(Path childDir, BasicFileAttributes attributes) {
+            Object childKey = attributes.fileKey();
+            for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (childKey != null && ancestor.fileKey != null) {
+                    if (childKey.equals(ancestor.fileKey)) {
+                        return true;
+                    }
+                } else if (isSameFile(childDir, ancestor.dir)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isSameFile(Path childDir, Path ancestorDir) {
+            try {
+                return Files.isSameFile(childDir, ancestorDir);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private class WalkDirectory extends RecursiveTask<List<FileSnapshot>> {
+        private final Path dir;
+        private final RelativePath path;
+        private final Ancestor ancestors;
+        private final WalkState state;
+
+        WalkDirectory(Path dir, RelativePath path, Ancestor ancestors, WalkState state) {
+            this.dir = dir;
+            this.path = path;
+            this.ancestors = ancestors;
+            this.state = state;
+        }
+
+        @Override
+        protected List<FileSnapshot> compute() {
+            try {
+                return walk();
+            } catch (RuntimeException e) {
+                state.failure.compareAndSet(null, e);
+                state.stopFlag.set(true);
+                throw e;
+            }
+        }
+
+        private List<FileSnapshot> walk() {
+            List<File> children = listChildren();
+
+            List<FileSnapshot> snapshots = new ArrayList<FileSnapshot>();
+            // The subdirectories are walked as soon as they are found, and their contents are inserted after their snapshots
+            List<WalkDirectory> subtasks = new ArrayList<WalkDirectory>();
+            List<Integer> subtaskPositions = new ArrayList<Integer>();
+            for (int i = 0; !state.stopFlag.get() && i < children.size(); i++) {
+                File childFile = children.get(i);
+                Path child = childFile.toPath();
+                BasicFileAttributes attributes = readAttributes(child);
+                if (attributes == null) {
+                    // Could not follow a symbolic link, or the file was removed while walking
+                    FileVisitDetails details = new UnauthorizedFileVisitDetails(childFile, path.append(true, childFile.getName()));
+                    if (state.spec.isSatisfiedBy(details)) {
+                        throw new GradleException(String.format("Could not read path '%s'.", child));
+                    }
+                    continue;
+                }
+                boolean isDirectory = attributes.isDirectory();
+                if (isDirectory && ancestors.isLoop(child, attributes)) {
+                    continue;
+                }
+                FileVisitDetails details = new DefaultFileVisitDetails(childFile, path.append(!isDirectory, childFile.getName()), state.stopFlag, fileSystem, fileSystem, isDirectory,
+                    attributes.lastModifiedTime().toMillis(), attributes.size());
+                if (state.spec.isSatisfiedBy(details)) {
+                    if (isDirectory) {
+                        snapshots.add(state.factory.directorySnapshot(details));
+                        WalkDirectory subtask = new WalkDirectory(child, details.getRelativePath(), new Ancestor(child, attributes.fileKey(), ancestors), state);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                        subtaskPositions.add(snapshots.size());
+                    } else {
+                        snapshots.add(state.factory.fileSnapshot(details));
+                    }
+                }
+            }
+            if (subtasks.isEmpty()) {
+                return snapshots;
+            }
+
+            // Join in order, a subdirectory that has not been picked up by another thread yet is walked on this thread
+            List<FileSnapshot> result = new ArrayList<FileSnapshot>(snapshots.size());
+            int from = 0;
+            for (int i = 0; i < subtasks.size(); i++) {
+                int to = subtaskPositions.get(i);
+                result.addAll(snapshots.subList(from, to));
+                result.addAll(subtasks.get(i).join());
+                from = to;
+            }
+            result.addAll(snapshots.subList(from, snapshots.size()));
+            return result;
+        }
+
+        private List<File> listChildren() {
+            List<File> children = new ArrayList<File>();
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                try {
+                    for (Path child : stream) {
+                        children.add(child.toFile());
+                    }
+                } finally {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                if (Files.isDirectory(dir) && !Files.isReadable(dir)) {
+                    throw new GradleException(String.format("Could not list contents of directory '%s' as it is not readable.", dir), e);
+                }
+                throw new GradleException(String.format("Could not list contents of '%s'.", dir), e);
+            }
+            return children;
+        }
+
+        private BasicFileAttributes readAttributes(Path child) {
+            try {
+                return Files.readAttributes(child, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The entries of one cache, kept in an in-memory cache that is shared with other caches. All caches sharing the in-memory cache
+ * share its size limit and evict their least recently used entries in a single order.
+ *
+ * <p>Invalidating all entries doesn't remove them from the shared cache. It makes them unreachable instead, so they are the first to be evicted.</p>
+ */
+class PartitionedInMemoryCache extends AbstractCache<Object, Object> {
+    private final String cacheId;
+    private final Cache<Object, Object> sharedCache;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final SimpleStatsCounter statsCounter = new SimpleStatsCounter();
+
+    PartitionedInMemoryCache(String cacheId, Cache<Object, Object> sharedCache) {
+        this.cacheId = cacheId;
+        this.sharedCache = sharedCache;
+    }
+
+    @Override
+    public String toString() {
+        return "in-memory cache of " + cacheId;
+    }
+
+    @Nullable
+    @Override
+    public Object getIfPresent(Object key) {
+        Object value = sharedCache.getIfPresent(partitionKey(key));
+        if (value == null) {
+            statsCounter.recordMisses(1);
+        } else {
+            statsCounter.recordHits(1);
+        }
+        return value;
+    }
+
+    @Override
+    public Object get(Object key, final Callable<?> valueLoader) throws ExecutionException {
+        final boolean[] loaded = new boolean[1];
+        Object value = sharedCache.get(partitionKey(key), new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                loaded[0] = true;
+                return valueLoader.call();
+            }
+        });
+        if (loaded[0]) {
+            statsCounter.recordMisses(1);
+        } else {
+            statsCounter.recordHits(1);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        sharedCache.put(partitionKey(key), value);
+    }
+
+    @Override
+    public void invalidate(Object key) {
+        sharedCache.invalidate(partitionKey(key));
+    }
+
+    @Override
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    void recordEviction() {
+        statsCounter.recordEviction();
+    }
+
+    private PartitionKey partitionKey(Object key) {
+        return new PartitionKey(this, generation.get(), key);
+    }
+
+    static class PartitionKey {
+        private final PartitionedInMemoryCache partition;
+        private final int generation;
+        private final Object key;
+        private final int hashCode;
+
+        PartitionKey(PartitionedInMemoryCache partition, int generation, Object key) {
+            this.partition = partition;
+            this.generation = generation;
+            this.key = key;
+            this.hashCode = 31 * (31 * System.identityHashCode(partition) + generation) + key.hashCode();
+        }
+
+        PartitionedInMemoryCache getPartition() {
+            return partition;
+        }
+
+        Object getKey() {
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            PartitionKey other = (PartitionKey) obj;
+            return partition == other.partition && generation == other.generation && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -22,16 +22,28 @@ import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.Hashing;
 
+import javax.annotation.Nullable;
+
 public class ResourceSnapshotterCacheService {
     private static final HashCode NO_HASH = Hashing.md5().hashString(CachingResourceHasher.class.getName() + " : no hash");
     private final PersistentIndexedCache<HashCode, HashCode> persistentCache;
+    private final CachedJarResourceHashCache cachedJarHashes;
 
     public ResourceSnapshotterCacheService(PersistentIndexedCache<HashCode, HashCode> persistentCache) {
+        this(persistentCache, null);
+    }
+
+    /**
+     * Creates a service which stores the hashes of files in the cached jar file stores in the given cross-build cache, and the hashes of all other files in the given cache.
+     */
+    public ResourceSnapshotterCacheService(PersistentIndexedCache<HashCode, HashCode> persistentCache, @Nullable CachedJarResourceHashCache cachedJarHashes) {
         this.persistentCache = persistentCache;
+        this.cachedJarHashes = cachedJarHashes;
     }
 
     public HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher hasher, HashCode configurationHash) {
         HashCode resourceHashCacheKey = resourceHashCacheKey(fileSnapshot, configurationHash);
+        PersistentIndexedCache<HashCode, HashCode> persistentCache = cacheFor(fileSnapshot);
 
         HashCode resourceHash = persistentCache.get(resourceHashCacheKey);
         if (resourceHash != null) {
@@ -51,6 +63,25 @@ public class ResourceSnapshotterCacheService {
         return resourceHash;
     }
 
+    /**
+     * Returns the hash of the given file when it has already been calculated with the given configuration, or null when it has not been calculated or the file has no hash.
+     */
+    @Nullable
+    public HashCode getCachedHash(RegularFileSnapshot fileSnapshot, HashCode configurationHash) {
+        HashCode resourceHash = cacheFor(fileSnapshot).get(resourceHashCacheKey(fileSnapshot, configurationHash));
+        if (resourceHash == null || resourceHash.equals(NO_HASH)) {
+            return null;
+        }
+        return resourceHash;
+    }
+
+    private PersistentIndexedCache<HashCode, HashCode> cacheFor(RegularFileSnapshot fileSnapshot) {
+        if (cachedJarHashes != null && cachedJarHashes.isCachedJarFile(fileSnapshot.getPath())) {
+            return cachedJarHashes.getCache();
+        }
+        return persistentCache;
+    }
+
     private static HashCode resourceHashCacheKey(RegularFileSnapshot fileSnapshot, HashCode configurationHash) {
         BuildCacheHasher hasher = new DefaultBuildCacheHasher();
         hasher.putHash(configurationHash);
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Weigher;
+import com.google.common.primitives.Ints;
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+
+/**
+ * Weighs the entries of in-memory caches by an estimate of the number of bytes they retain.
+ */
+class RetainedSizeWeigher implements Weigher<Object, Object> {
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int DEFAULT_VALUE_SIZE = 128;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        return Ints.saturatedCast(ENTRY_OVERHEAD + estimateSize(key) + estimateSize(value));
+    }
+
+    static long estimateSize(Object object) {
+        if (object instanceof WithEstimatedRetainedSize) {
+            return ((WithEstimatedRetainedSize) object).getEstimatedRetainedSize();
+        }
+        if (object instanceof PartitionedInMemoryCache.PartitionKey) {
+            return 24 + estimateSize(((PartitionedInMemoryCache.PartitionKey) object).getKey());
+        }
+        if (object instanceof String) {
+            return estimateSize((String) object);
+        }
+        if (object instanceof File) {
+            return 24 + estimateSize(((File) object).getPath());
+        }
+        if (object instanceof HashCode) {
+            return 32 + ((HashCode) object).length();
+        }
+        if (object instanceof Long) {
+            return 16;
+        }
+        if (object instanceof byte[]) {
+            return 16 + ((byte[]) object).length;
+        }
+        return DEFAULT_VALUE_SIZE;
+    }
+
+    static long estimateSize(String string) {
+        return 56 + 2L * string.length();
+    }
+}
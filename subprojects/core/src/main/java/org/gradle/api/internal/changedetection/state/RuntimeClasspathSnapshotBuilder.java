@@ -17,6 +17,9 @@
 package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.operations.BuildOperationExecutor;
+
+import javax.annotation.Nullable;
 
 /**
  * Builds a {@link FileCollectionSnapshot} for a runtime classpath.
@@ -24,8 +27,8 @@ import org.gradle.api.internal.cache.StringInterner;
  * We take the contents of jar files, non jar files and directories into account.
  */
 public class RuntimeClasspathSnapshotBuilder extends AbstractClasspathSnapshotBuilder {
-    public RuntimeClasspathSnapshotBuilder(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, StringInterner stringInterner) {
-        super(classpathResourceHasher, cacheService, stringInterner);
+    public RuntimeClasspathSnapshotBuilder(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, StringInterner stringInterner, @Nullable BuildOperationExecutor buildOperationExecutor) {
+        super(classpathResourceHasher, cacheService, stringInterner, buildOperationExecutor);
     }
 
     @Override
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed size, open addressing hash table of file hashes in a memory mapped file, which can be read and written by several processes at the
+ * same time without taking any file locks.
+ *
+ * <p>Each slot holds the 128 bit hash of the absolute path of a file, its length, its timestamp and its content hash, followed by a checksum of
+ * these values. A writer first clears the checksum of the slot, then writes the values and finally the new checksum. A reader only accepts a slot
+ * when the checksum matches the values it has read, so an entry that is being written by another thread or process, or that was torn by two
+ * concurrent writers, is treated as missing. Entries may be overwritten at any time, so this table can only be used in front of another cache
+ * that holds the definitive values.</p>
+ *
+ * <p>The mapped file is only released once the mapping is garbage collected.</p>
+ */
+public class SharedFileHashTable implements Closeable {
+    private static final int DEFAULT_SLOT_COUNT = 1 << 18;
+    private static final int SLOT_SIZE = 64;
+    private static final int MAX_PROBES = 4;
+    private static final int CONTENT_HASH_LENGTH = 16;
+
+    private static final int KEY_HIGH_OFFSET = 0;
+    private static final int KEY_LOW_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int TIMESTAMP_OFFSET = 24;
+    private static final int HASH_HIGH_OFFSET = 32;
+    private static final int HASH_LOW_OFFSET = 40;
+    private static final int CHECKSUM_OFFSET = 48;
+
+    private static final HashFunction PATH_HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final File tableFile;
+    private final int slotCount;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+
+    public SharedFileHashTable(File tableFile) {
+        this(tableFile, DEFAULT_SLOT_COUNT);
+    }
+
+    SharedFileHashTable(File tableFile, int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("The number of slots must be a power of two, but was " + slotCount);
+        }
+        this.tableFile = tableFile;
+        this.slotCount = slotCount;
+        long size = (long) slotCount * SLOT_SIZE;
+        try {
+            tableFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(tableFile, "rw");
+            try {
+                // A new file is all zeros, which is a table of empty slots. Several processes may grow the file at the same time, which is harmless.
+                if (file.length() < size) {
+                    file.setLength(size);
+                }
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open shared file hash table " + tableFile, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "shared file hash table '" + tableFile + "'";
+    }
+
+    /**
+     * Returns the entry for the given absolute path, or null when there is no complete entry for the path.
+     */
+    @Nullable
+    public Entry get(String absolutePath) {
+        Key key = key(absolutePath);
+        int home = home(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = slotOffset(home, probe);
+            if (buffer.getLong(offset + KEY_HIGH_OFFSET) != key.high || buffer.getLong(offset + KEY_LOW_OFFSET) != key.low) {
+                continue;
+            }
+            long length = buffer.getLong(offset + LENGTH_OFFSET);
+            long timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+            long hashHigh = buffer.getLong(offset + HASH_HIGH_OFFSET);
+            long hashLow = buffer.getLong(offset + HASH_LOW_OFFSET);
+            long checksum = buffer.getLong(offset + CHECKSUM_OFFSET);
+            if (checksum == checksum(key.high, key.low, length, timestamp, hashHigh, hashLow)) {
+                return new Entry(toHashCode(hashHigh, hashLow), length, timestamp);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the entry for the given absolute path, replacing an existing entry for the path, or another entry when there is no free slot for it.
+     * Only content hashes of 16 bytes can be stored, other hashes are ignored.
+     */
+    public void put(String absolutePath, HashCode hash, long length, long timestamp) {
+        if (hash.length() != CONTENT_HASH_LENGTH) {
+            return;
+        }
+        Key key = key(absolutePath);
+        int offset = findSlotForWrite(key);
+        ByteBuffer hashBytes = ByteBuffer.wrap(hash.toByteArray());
+        long hashHigh = hashBytes.getLong();
+        long hashLow = hashBytes.getLong();
+        buffer.putLong(offset + CHECKSUM_OFFSET, 0);
+        buffer.putLong(offset + KEY_HIGH_OFFSET, key.high);
+        buffer.putLong(offset + KEY_LOW_OFFSET, key.low);
+        buffer.putLong(offset + LENGTH_OFFSET, length);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        buffer.putLong(offset + HASH_HIGH_OFFSET, hashHigh);
+        buffer.putLong(offset + HASH_LOW_OFFSET, hashLow);
+        buffer.putLong(offset + CHECKSUM_OFFSET, checksum(key.high, key.low, length, timestamp, hashHigh, hashLow));
+    }
+
+    /**
+     * Removes the entry for the given absolute path, if present.
+     */
+    public void remove(String absolutePath) {
+        Key key = key(absolutePath);
+        int home = home(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = slotOffset(home, probe);
+            if (buffer.getLong(offset + KEY_HIGH_OFFSET) == key.high && buffer.getLong(offset + KEY_LOW_OFFSET) == key.low) {
+                buffer.putLong(offset + CHECKSUM_OFFSET, 0);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int findSlotForWrite(Key key) {
+        int home = home(key);
+        int free = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = slotOffset(home, probe);
+            long keyHigh = buffer.getLong(offset + KEY_HIGH_OFFSET);
+            long keyLow = buffer.getLong(offset + KEY_LOW_OFFSET);
+            if (keyHigh == key.high && keyLow == key.low) {
+                return offset;
+            }
+            if (free < 0 && !isComplete(offset, keyHigh, keyLow)) {
+                free = offset;
+            }
+        }
+        // When all slots are taken by other paths, evict the entry in the home slot
+        return free >= 0 ? free : slotOffset(home, 0);
+    }
+
+    private boolean isComplete(int offset, long keyHigh, long keyLow) {
+        long checksum = buffer.getLong(offset + CHECKSUM_OFFSET);
+        return checksum == checksum(keyHigh, keyLow, buffer.getLong(offset + LENGTH_OFFSET), buffer.getLong(offset + TIMESTAMP_OFFSET), buffer.getLong(offset + HASH_HIGH_OFFSET), buffer.getLong(offset + HASH_LOW_OFFSET));
+    }
+
+    private int home(Key key) {
+        return (int) key.low & (slotCount - 1);
+    }
+
+    private int slotOffset(int home, int probe) {
+        return ((home + probe) & (slotCount - 1)) * SLOT_SIZE;
+    }
+
+    private static Key key(String absolutePath) {
+        ByteBuffer pathHash = ByteBuffer.wrap(PATH_HASH_FUNCTION.hashString(absolutePath).toByteArray());
+        return new Key(pathHash.getLong(), pathHash.getLong());
+    }
+
+    private static HashCode toHashCode(long high, long low) {
+        ByteBuffer bytes = ByteBuffer.allocate(CONTENT_HASH_LENGTH);
+        bytes.putLong(high);
+        bytes.putLong(low);
+        return HashCode.fromBytes(bytes.array());
+    }
+
+    /**
+     * Combines the values of a slot. Never returns 0, which marks a slot as incomplete, and does not return 0 for a slot of zeros either.
+     */
+    private static long checksum(long keyHigh, long keyLow, long length, long timestamp, long hashHigh, long hashLow) {
+        long checksum = 0x9E3779B97F4A7C15L;
+        checksum = mix(checksum ^ keyHigh);
+        checksum = mix(checksum ^ keyLow);
+        checksum = mix(checksum ^ length);
+        checksum = mix(checksum ^ timestamp);
+        checksum = mix(checksum ^ hashHigh);
+        checksum = mix(checksum ^ hashLow);
+        return checksum == 0 ? 1 : checksum;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static class Key {
+        final long high;
+        final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+    }
+
+    public static class Entry {
+        private final HashCode hash;
+        private final long length;
+        private final long timestamp;
+
+        Entry(HashCode hash, long length, long timestamp) {
+            this.hash = hash;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+
+        public HashCode getHash() {
+            return hash;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
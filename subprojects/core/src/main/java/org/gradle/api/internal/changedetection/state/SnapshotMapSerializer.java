@@ -93,10 +93,9 @@ public class SnapshotMapSerializer extends AbstractSerializer<Map<String, Normal
     @Override
     public void write(Encoder encoder, Map<String, NormalizedFileSnapshot> value) throws Exception {
         encoder.writeSmallInt(value.size());
-        for (String key : value.keySet()) {
-            encoder.writeString(key);
-            NormalizedFileSnapshot snapshot = value.get(key);
-            writeSnapshot(encoder, snapshot);
+        for (Map.Entry<String, NormalizedFileSnapshot> entry : value.entrySet()) {
+            encoder.writeString(entry.getKey());
+            writeSnapshot(encoder, entry.getValue());
         }
     }
 
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * Implemented by values of in-memory caches that can estimate how much memory they retain, so that caches can be limited by memory rather than by number of entries.
+ */
+public interface WithEstimatedRetainedSize {
+    /**
+     * Returns an estimate of the number of bytes retained by this object. The estimate should be cheap to calculate and must not change over the lifetime of the object.
+     */
+    long getEstimatedRetainedSize();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey;
+
+/**
+ * A {@link TaskExecuter} which starts checking whether the remote build cache has the outputs of a task before its up-to-date check,
+ * so that the check overlaps with the up-to-date check and the local cache lookup, and a remote cache miss needs no further request.
+ */
+public class CheckRemoteCacheEntryExecuter implements TaskExecuter {
+    private final BuildCacheController buildCache;
+    private final TaskExecuter delegate;
+
+    public CheckRemoteCacheEntryExecuter(BuildCacheController buildCache, TaskExecuter delegate) {
+        this.buildCache = buildCache;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        TaskOutputCachingBuildCacheKey cacheKey = context.getBuildCacheKey();
+        if (!state.getTaskOutputCaching().isEnabled() || !cacheKey.isValid() || !context.getTaskArtifactState().isAllowedToUseCachedResults()) {
+            delegate.execute(task, state, context);
+            return;
+        }
+
+        buildCache.checkRemoteExists(cacheKey);
+        try {
+            delegate.execute(task, state, context);
+        } finally {
+            // Drop the result when the task turned out to be up-to-date or was loaded from the local cache
+            buildCache.discardRemoteExistenceCheck(cacheKey);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.execution;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.gradle.api.GradleException;
 import org.gradle.api.execution.TaskActionListener;
@@ -41,6 +42,7 @@ import org.gradle.internal.progress.BuildOperationState;
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId;
 import org.gradle.internal.work.AsyncWorkTracker;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -66,7 +68,7 @@ public class ExecuteActionsTaskExecuter implements TaskExecuter {
     public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
         listener.beforeActions(task);
         if (task.hasTaskActions()) {
-            outputsGenerationListener.beforeTaskOutputChanged();
+            beforeTaskOutputChanged(context.getTaskProperties());
         }
         state.setExecuting(true);
         try {
@@ -85,6 +87,22 @@ public class ExecuteActionsTaskExecuter implements TaskExecuter {
         }
     }
 
+    private void beforeTaskOutputChanged(TaskProperties taskProperties) {
+        ImmutableSet.Builder<File> affectedOutputs = ImmutableSet.builder();
+        if (taskProperties != null) {
+            affectedOutputs.addAll(taskProperties.getOutputFiles());
+            affectedOutputs.addAll(taskProperties.getLocalStateFiles());
+            affectedOutputs.addAll(taskProperties.getDestroyableFiles());
+        }
+        ImmutableSet<File> outputs = affectedOutputs.build();
+        if (outputs.isEmpty()) {
+            // Without any declared outputs, the task actions could change any file
+            outputsGenerationListener.beforeTaskOutputChanged();
+        } else {
+            outputsGenerationListener.beforeTaskOutputChanged(outputs);
+        }
+    }
+
     private GradleException executeActions(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
         LOGGER.debug("Executing actions for {}.", task);
         final List<ContextAwareTaskAction> actions = new ArrayList<ContextAwareTaskAction>(task.getTaskActions());
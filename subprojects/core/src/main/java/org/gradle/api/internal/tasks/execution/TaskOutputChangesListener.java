@@ -16,10 +16,18 @@
 
 package org.gradle.api.internal.tasks.execution;
 
+import java.io.File;
+
 public interface TaskOutputChangesListener {
     /**
-     * Invoked when the outputs for a task are about to change.
+     * Invoked when the outputs for a task are about to change, and it is not known which files will be affected.
      * This is for example just before the task actions are executed or the outputs are loaded from the cache.
      */
     void beforeTaskOutputChanged();
+
+    /**
+     * Invoked when the outputs for a task are about to change, and only the given locations and their descendants will be affected.
+     * This is for example just before the actions of a task with declared outputs are executed, or before stale outputs are removed.
+     */
+    void beforeTaskOutputChanged(Iterable<File> affectedOutputs);
 }
@@ -99,6 +99,11 @@ public class DefaultFileContentCacheFactory implements FileContentCacheFactory,
             cache.clear();
         }
 
+        @Override
+        public void beforeTaskOutputChanged(Iterable<File> affectedOutputs) {
+            beforeTaskOutputChanged();
+        }
+
         @Override
         public V get(File file) {
             // TODO - don't calculate the same value concurrently
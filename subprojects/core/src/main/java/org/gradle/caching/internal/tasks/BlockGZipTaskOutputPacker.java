@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 the original author or authors.
+ * Copyright 2018 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,33 +17,38 @@
 package org.gradle.caching.internal.tasks;
 
 import org.apache.commons.io.IOUtils;
-import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.changedetection.state.FileContentSnapshot;
 import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.SortedSet;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
- * Adds compression and CRC32 checks to the packed task output.
+ * Compresses the entries of the delegate packer with {@link BlockGZipOutputStream}, so that they can be compressed and decompressed on multiple threads.
+ *
+ * <p>Stopping this packer stops the given executor.</p>
  */
-public class GZipTaskOutputPacker implements TaskOutputPacker {
+public class BlockGZipTaskOutputPacker implements TaskOutputPacker, Stoppable {
     private final TaskOutputPacker delegate;
+    private final ManagedExecutor executor;
+    private final int maxPendingBlocks;
 
-    public GZipTaskOutputPacker(TaskOutputPacker delegate) {
+    public BlockGZipTaskOutputPacker(TaskOutputPacker delegate, ManagedExecutor executor, int maxPendingBlocks) {
         this.delegate = delegate;
+        this.executor = executor;
+        this.maxPendingBlocks = maxPendingBlocks;
     }
 
     @Override
     public PackResult pack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, Map<String, Map<String, FileContentSnapshot>> outputFiles, OutputStream output, TaskOutputOriginWriter writeOrigin) throws IOException {
-        GZIPOutputStream gzipOutput = createGzipOutputStream(output);
+        BlockGZipOutputStream gzipOutput = new BlockGZipOutputStream(output, executor, maxPendingBlocks);
         try {
             return delegate.pack(propertySpecs, outputFiles, gzipOutput, writeOrigin);
         } finally {
@@ -51,17 +56,9 @@ public class GZipTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
-    private GZIPOutputStream createGzipOutputStream(OutputStream output) {
-        try {
-            return new GZIPOutputStream(output);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
     @Override
     public UnpackResult unpack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException {
-        GZIPInputStream gzipInput = createGzipInputStream(input);
+        BlockGZipInputStream gzipInput = new BlockGZipInputStream(input, executor, maxPendingBlocks);
         try {
             return delegate.unpack(propertySpecs, gzipInput, readOrigin);
         } finally {
@@ -69,11 +66,8 @@ public class GZipTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
-    private GZIPInputStream createGzipInputStream(InputStream input) {
-        try {
-            return new GZIPInputStream(input);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+    @Override
+    public void stop() {
+        executor.stop();
     }
 }
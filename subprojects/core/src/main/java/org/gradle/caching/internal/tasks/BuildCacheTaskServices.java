@@ -32,6 +32,8 @@ import org.gradle.caching.internal.controller.RootBuildCacheControllerRef;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
 import org.gradle.initialization.buildsrc.BuildSourceBuilder;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -55,8 +57,10 @@ public class BuildCacheTaskServices {
 
     private static final Path ROOT_BUILD_SRC_PATH = Path.path(":" + BuildSourceBuilder.BUILD_SRC);
 
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner) {
-        return new GZipTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner));
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner, ExecutorFactory executorFactory) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        ManagedExecutor executor = executorFactory.create("Build cache entry packing", parallelism);
+        return new BlockGZipTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner, executor, 4 * parallelism), executor, 2 * parallelism);
     }
 
     TaskOutputOriginFactory createTaskOutputOriginFactory(
@@ -82,12 +86,13 @@ public class BuildCacheTaskServices {
         ServiceRegistry serviceRegistry,
         BuildCacheConfigurationInternal buildCacheConfiguration,
         BuildOperationExecutor buildOperationExecutor,
+        ExecutorFactory executorFactory,
         InstantiatorFactory instantiatorFactory,
         GradleInternal gradle,
         RootBuildCacheControllerRef rootControllerRef
     ) {
         if (isRoot(gradle) || isRootBuildSrc(gradle) || isGradleBuildTaskRoot(rootControllerRef)) {
-            return doCreateBuildCacheController(serviceRegistry, buildCacheConfiguration, buildOperationExecutor, instantiatorFactory, gradle);
+            return doCreateBuildCacheController(serviceRegistry, buildCacheConfiguration, buildOperationExecutor, executorFactory, instantiatorFactory, gradle);
         } else {
             // must be an included build
             return rootControllerRef.getForNonRootBuild();
@@ -111,7 +116,7 @@ public class BuildCacheTaskServices {
         return gradle.getParent() == null;
     }
 
-    private BuildCacheController doCreateBuildCacheController(ServiceRegistry serviceRegistry, BuildCacheConfigurationInternal buildCacheConfiguration, BuildOperationExecutor buildOperationExecutor, InstantiatorFactory instantiatorFactory, GradleInternal gradle) {
+    private BuildCacheController doCreateBuildCacheController(ServiceRegistry serviceRegistry, BuildCacheConfigurationInternal buildCacheConfiguration, BuildOperationExecutor buildOperationExecutor, ExecutorFactory executorFactory, InstantiatorFactory instantiatorFactory, GradleInternal gradle) {
         StartParameter startParameter = gradle.getStartParameter();
         Path buildIdentityPath = gradle.getIdentityPath();
         File gradleUserHomeDir = gradle.getGradleUserHomeDir();
@@ -121,6 +126,7 @@ public class BuildCacheTaskServices {
 
         return BuildCacheControllerFactory.create(
             buildOperationExecutor,
+            executorFactory,
             buildIdentityPath,
             gradleUserHomeDir,
             buildCacheConfiguration,
@@ -19,8 +19,9 @@ package org.gradle.caching.internal.tasks;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
@@ -43,11 +44,14 @@ import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
 import org.gradle.api.internal.tasks.TaskFilePropertySpec;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 
+import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -59,9 +63,16 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,6 +81,8 @@ import static org.gradle.caching.internal.tasks.TaskOutputPackerUtils.makeDirect
 
 /**
  * Packages task output to a POSIX TAR file.
+ *
+ * <p>When unpacking, small files can be read into memory and written to disk on the threads of an executor, while the next entries are read.</p>
  */
 @SuppressWarnings("Since15")
 public class TarTaskOutputPacker implements TaskOutputPacker {
@@ -78,6 +91,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
     @SuppressWarnings("OctalInteger")
     private static final int FILE_PERMISSION_MASK = 0777;
     private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BACKGROUND_FILE_SIZE = 1024 * 1024;
     private static final ThreadLocal<byte[]> COPY_BUFFERS = new ThreadLocal<byte[]>() {
         @Override
         protected byte[] initialValue() {
@@ -88,11 +102,23 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
     private final FileSystem fileSystem;
     private final StreamHasher streamHasher;
     private final StringInterner stringInterner;
+    private final ExecutorService executor;
+    private final int maxPendingFiles;
 
     public TarTaskOutputPacker(FileSystem fileSystem, StreamHasher streamHasher, StringInterner stringInterner) {
+        this(fileSystem, streamHasher, stringInterner, null, 0);
+    }
+
+    /**
+     * @param executor the executor to write files with when unpacking, or null to write them on the calling thread.
+     * @param maxPendingFiles the maximum number of files to hold in memory waiting to be written when unpacking.
+     */
+    public TarTaskOutputPacker(FileSystem fileSystem, StreamHasher streamHasher, StringInterner stringInterner, @Nullable ExecutorService executor, int maxPendingFiles) {
         this.fileSystem = fileSystem;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
+        this.executor = executor;
+        this.maxPendingFiles = executor == null ? 0 : maxPendingFiles;
     }
 
     @Override
@@ -256,33 +282,37 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         });
         TarArchiveEntry tarEntry;
         OriginTaskExecutionMetadata originMetadata = null;
-        ImmutableListMultimap.Builder<String, FileSnapshot> propertyFileSnapshots = ImmutableListMultimap.builder();
+        FileSnapshots propertyFileSnapshots = new FileSnapshots();
 
         long entries = 0;
-        while ((tarEntry = tarInput.getNextTarEntry()) != null) {
-            ++entries;
-            String path = tarEntry.getName();
+        try {
+            while ((tarEntry = tarInput.getNextTarEntry()) != null) {
+                ++entries;
+                String path = tarEntry.getName();
+
+                if (path.equals(METADATA_PATH)) {
+                    // handle origin metadata
+                    originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
+                } else {
+                    // handle output property
+                    Matcher matcher = PROPERTY_PATH.matcher(path);
+                    if (!matcher.matches()) {
+                        throw new IllegalStateException("Cached result format error, invalid contents: " + path);
+                    }
 
-            if (path.equals(METADATA_PATH)) {
-                // handle origin metadata
-                originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
-            } else {
-                // handle output property
-                Matcher matcher = PROPERTY_PATH.matcher(path);
-                if (!matcher.matches()) {
-                    throw new IllegalStateException("Cached result format error, invalid contents: " + path);
-                }
+                    String propertyName = unescape(matcher.group(2));
+                    ResolvedTaskOutputFilePropertySpec propertySpec = propertySpecsMap.get(propertyName);
+                    if (propertySpec == null) {
+                        throw new IllegalStateException(String.format("No output property '%s' registered", propertyName));
+                    }
 
-                String propertyName = unescape(matcher.group(2));
-                ResolvedTaskOutputFilePropertySpec propertySpec = propertySpecsMap.get(propertyName);
-                if (propertySpec == null) {
-                    throw new IllegalStateException(String.format("No output property '%s' registered", propertyName));
+                    boolean outputMissing = matcher.group(1) != null;
+                    String childPath = matcher.group(3);
+                    unpackPropertyEntry(propertySpec, tarInput, tarEntry, childPath, outputMissing, propertyFileSnapshots);
                 }
-
-                boolean outputMissing = matcher.group(1) != null;
-                String childPath = matcher.group(3);
-                unpackPropertyEntry(propertySpec, tarInput, tarEntry, childPath, outputMissing, propertyFileSnapshots);
             }
+        } finally {
+            propertyFileSnapshots.awaitPendingFiles();
         }
         if (originMetadata == null) {
             throw new IllegalStateException("Cached result format error, no origin metadata was found.");
@@ -291,7 +321,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         return new UnpackResult(originMetadata, entries, propertyFileSnapshots.build());
     }
 
-    private void unpackPropertyEntry(ResolvedTaskOutputFilePropertySpec propertySpec, InputStream input, TarArchiveEntry entry, String childPath, boolean missing, ImmutableMultimap.Builder<String, FileSnapshot> fileSnapshots) throws IOException {
+    private void unpackPropertyEntry(ResolvedTaskOutputFilePropertySpec propertySpec, InputStream input, TarArchiveEntry entry, String childPath, boolean missing, FileSnapshots fileSnapshots) throws IOException {
         File propertyRoot = propertySpec.getOutputFile();
         String propertyName = propertySpec.getPropertyName();
         if (propertyRoot == null) {
@@ -331,22 +361,114 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
 
         String internedPath = stringInterner.intern(outputFile.getAbsolutePath());
         RelativePath relativePath = root ? RelativePath.parse(!isDirEntry, outputFile.getName()) : RelativePath.parse(!isDirEntry, childPath);
+        int mode = entry.getMode() & FILE_PERMISSION_MASK;
         if (isDirEntry) {
             FileUtils.forceMkdir(outputFile);
-            fileSnapshots.put(propertyName, new DirectoryFileSnapshot(internedPath, relativePath, root));
+            fileSystem.chmod(outputFile, mode);
+            fileSnapshots.add(propertyName, new DirectoryFileSnapshot(internedPath, relativePath, root));
+        } else if (maxPendingFiles > 0 && entry.getSize() <= MAX_BACKGROUND_FILE_SIZE) {
+            byte[] content = new byte[(int) entry.getSize()];
+            IOUtils.readFully(input, content);
+            fileSnapshots.addPendingFile(propertyName, new FileRestorer(outputFile, new ByteArrayInputStream(content), mode, internedPath, relativePath, root));
         } else {
+            fileSnapshots.add(propertyName, new FileRestorer(outputFile, input, mode, internedPath, relativePath, root).call());
+        }
+    }
+
+    /**
+     * Writes a file and creates its snapshot.
+     */
+    private class FileRestorer implements Callable<FileSnapshot> {
+        private final File outputFile;
+        private final InputStream content;
+        private final int mode;
+        private final String internedPath;
+        private final RelativePath relativePath;
+        private final boolean root;
+
+        FileRestorer(File outputFile, InputStream content, int mode, String internedPath, RelativePath relativePath, boolean root) {
+            this.outputFile = outputFile;
+            this.content = content;
+            this.mode = mode;
+            this.internedPath = internedPath;
+            this.relativePath = relativePath;
+            this.root = root;
+        }
+
+        @Override
+        public FileSnapshot call() throws IOException {
             OutputStream output = new FileOutputStream(outputFile);
             HashCode hash;
             try {
-                hash = streamHasher.hashCopy(input, output);
+                hash = streamHasher.hashCopy(content, output);
             } finally {
                 IOUtils.closeQuietly(output);
             }
+            fileSystem.chmod(outputFile, mode);
             FileHashSnapshot contentSnapshot = new FileHashSnapshot(hash, outputFile.lastModified());
-            fileSnapshots.put(propertyName, new RegularFileSnapshot(internedPath, relativePath, root, contentSnapshot));
+            return new RegularFileSnapshot(internedPath, relativePath, root, contentSnapshot);
         }
+    }
 
-        fileSystem.chmod(outputFile, entry.getMode() & FILE_PERMISSION_MASK);
+    /**
+     * The snapshots of the unpacked files in the order of the entries, some of which may be for files that are still being written.
+     */
+    private class FileSnapshots {
+        private final List<String> propertyNames = Lists.newArrayList();
+        private final List<Future<FileSnapshot>> snapshots = Lists.newArrayList();
+        private final Deque<Future<FileSnapshot>> pendingFiles = new ArrayDeque<Future<FileSnapshot>>();
+
+        void add(String propertyName, FileSnapshot snapshot) {
+            propertyNames.add(propertyName);
+            snapshots.add(Futures.immediateFuture(snapshot));
+        }
+
+        void addPendingFile(String propertyName, FileRestorer fileRestorer) throws IOException {
+            while (pendingFiles.size() >= maxPendingFiles) {
+                getSnapshot(pendingFiles.remove());
+            }
+            Future<FileSnapshot> snapshot = executor.submit(fileRestorer);
+            pendingFiles.add(snapshot);
+            propertyNames.add(propertyName);
+            snapshots.add(snapshot);
+        }
+
+        /**
+         * Waits until all files have been written, whether they could be written or not.
+         */
+        void awaitPendingFiles() {
+            for (Future<FileSnapshot> pendingFile : pendingFiles) {
+                try {
+                    pendingFile.get();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                } catch (ExecutionException ignored) {
+                    // Reported by build()
+                }
+            }
+            pendingFiles.clear();
+        }
+
+        ImmutableListMultimap<String, FileSnapshot> build() throws IOException {
+            ImmutableListMultimap.Builder<String, FileSnapshot> builder = ImmutableListMultimap.builder();
+            for (int i = 0; i < snapshots.size(); i++) {
+                builder.put(propertyNames.get(i), getSnapshot(snapshots.get(i)));
+            }
+            return builder.build();
+        }
+
+        private FileSnapshot getSnapshot(Future<FileSnapshot> snapshot) throws IOException {
+            try {
+                return snapshot.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            }
+        }
     }
 
     private static String escape(String name) {
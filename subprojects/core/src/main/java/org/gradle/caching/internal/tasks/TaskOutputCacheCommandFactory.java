@@ -19,11 +19,13 @@ package org.gradle.caching.internal.tasks;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.cache.StringInterner;
@@ -115,7 +117,8 @@ public class TaskOutputCacheCommandFactory {
 
         @Override
         public BuildCacheLoadCommand.Result<OriginTaskExecutionMetadata> load(InputStream input) {
-            taskOutputChangesListener.beforeTaskOutputChanged();
+            FileCollection localStateFiles = taskProperties.getLocalStateFiles();
+            beforeTaskOutputChanged(localStateFiles);
             final TaskOutputPacker.UnpackResult unpackResult;
             try {
                 unpackResult = packer.unpack(outputProperties, input, taskOutputOriginFactory.createReader(task));
@@ -131,7 +134,7 @@ public class TaskOutputCacheCommandFactory {
                 }
                 throw new GradleException(String.format("Failed to unpack outputs for %s", task), e);
             } finally {
-                cleanLocalState();
+                cleanLocalState(localStateFiles);
             }
             LOGGER.info("Unpacked output for {} from cache.", task);
 
@@ -148,6 +151,28 @@ public class TaskOutputCacheCommandFactory {
             };
         }
 
+        /*
+         * Unpacking only touches the output roots and the local state of the task, and the snapshots
+         * of the unpacked outputs are put into the file system mirror afterwards. Snapshots of other
+         * locations remain valid, so there is no need to throw them away.
+         */
+        private void beforeTaskOutputChanged(FileCollection localStateFiles) {
+            ImmutableSet.Builder<File> affectedOutputs = ImmutableSet.builder();
+            for (ResolvedTaskOutputFilePropertySpec property : outputProperties) {
+                File outputFile = property.getOutputFile();
+                if (outputFile != null) {
+                    affectedOutputs.add(outputFile);
+                }
+            }
+            affectedOutputs.addAll(localStateFiles);
+            ImmutableSet<File> outputs = affectedOutputs.build();
+            if (outputs.isEmpty()) {
+                taskOutputChangesListener.beforeTaskOutputChanged();
+            } else {
+                taskOutputChangesListener.beforeTaskOutputChanged(outputs);
+            }
+        }
+
         private void updateSnapshots(ImmutableListMultimap<String, FileSnapshot> propertiesFileSnapshots, OriginTaskExecutionMetadata originMetadata) {
             ImmutableSortedMap.Builder<String, FileCollectionSnapshot> propertySnapshotsBuilder = ImmutableSortedMap.naturalOrder();
             for (ResolvedTaskOutputFilePropertySpec property : outputProperties) {
@@ -188,8 +213,8 @@ public class TaskOutputCacheCommandFactory {
             taskArtifactState.snapshotAfterLoadedFromCache(propertySnapshotsBuilder.build(), originMetadata);
         }
 
-        private void cleanLocalState() {
-            for (File localStateFile : taskProperties.getLocalStateFiles()) {
+        private void cleanLocalState(FileCollection localStateFiles) {
+            for (File localStateFile : localStateFiles) {
                 try {
                     remove(localStateFile);
                 } catch (IOException ex) {
@@ -31,13 +31,14 @@ import java.util.Map;
 import java.util.SortedSet;
 
 public interface TaskOutputPacker {
-    // Initial format version
+    // Version 1: a single GZIP member
+    // Version 2: GZIP members of fixed size blocks, each with its size in the header, see BlockGZipOutputStream
     // NOTE: This should be changed whenever we change the way we pack a cache entry, such as
     // - changing from gzip to bzip2.
     // - adding/removing properties to the origin metadata
     // - using a different format for the origin metadata
     // - any major changes of the layout of a cache entry
-    int CACHE_ENTRY_FORMAT = 1;
+    int CACHE_ENTRY_FORMAT = 2;
 
     PackResult pack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, Map<String, Map<String, FileContentSnapshot>> outputSnapshots, OutputStream output, TaskOutputOriginWriter writeOrigin) throws IOException;
 
@@ -34,6 +34,7 @@ import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
 import org.gradle.api.internal.tasks.TaskContainerInternal;
@@ -71,13 +72,13 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -96,7 +97,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final ExecutionQueue executionQueue = new ExecutionQueue();
     private final Map<Project, ResourceLock> projectLocks = Maps.newHashMap();
     private final TaskFailureCollector failureCollector = new TaskFailureCollector();
     private final TaskInfoFactory nodeFactory = new TaskInfoFactory(failureCollector);
@@ -106,6 +107,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private final BuildCancellationToken cancellationToken;
     private final Set<TaskInfo> runningTasks = Sets.newIdentityHashSet();
+    private final PathTrie runningTaskMutations = new PathTrie();
     private final Set<Task> filteredTasks = Sets.newIdentityHashSet();
     private final Map<TaskInfo, TaskMutationInfo> taskMutations = Maps.newIdentityHashMap();
     private final Map<File, String> canonicalizedFileCache = Maps.newIdentityHashMap();
@@ -357,11 +359,70 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        executionQueue.reset(executionPlan.values());
 
     }
 
+    /**
+     * Reorders the tasks of the plan so that the ready task with the longest estimated remaining critical path is started first.
+     *
+     * <p>The remaining critical path of a task is its estimated duration plus the longest remaining critical path of the tasks that depend on it
+     * or finalize it. Durations are estimated from previous executions, and tasks without a previous execution are assumed to take the mean
+     * duration of the others. The plan is split into groups that end with each requested task, and the groups keep their order, so that
+     * {@code clean build} still prefers the cleaning tasks.</p>
+     */
+    public void orderByCriticalPath(TaskDurationRepository durations) {
+        List<TaskInfo> plan = new ArrayList<TaskInfo>(executionPlan.values());
+        Map<TaskInfo, Long> estimates = Maps.newIdentityHashMap();
+        long knownDurations = 0;
+        for (TaskInfo taskInfo : plan) {
+            Long duration = durations.getPreviousDuration(taskInfo.getTask().getIdentityPath().getPath());
+            if (duration != null) {
+                estimates.put(taskInfo, duration);
+                knownDurations += duration;
+            }
+        }
+        if (estimates.isEmpty()) {
+            return;
+        }
+        long defaultEstimate = knownDurations / estimates.size();
+
+        // The plan is ordered with dependencies first, so the tasks depending on a task have been visited when walking it backwards
+        final Map<TaskInfo, Long> criticalPaths = Maps.newIdentityHashMap();
+        for (int i = plan.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = plan.get(i);
+            long longestDependentPath = 0;
+            for (TaskInfo dependent : Iterables.concat(taskInfo.getDependencyPredecessors(), taskInfo.getFinalizers())) {
+                Long dependentPath = criticalPaths.get(dependent);
+                if (dependentPath != null && dependentPath > longestDependentPath) {
+                    longestDependentPath = dependentPath;
+                }
+            }
+            Long estimate = estimates.get(taskInfo);
+            criticalPaths.put(taskInfo, (estimate == null ? defaultEstimate : estimate) + longestDependentPath);
+        }
+
+        Comparator<TaskInfo> longestCriticalPathFirst = new Comparator<TaskInfo>() {
+            @Override
+            public int compare(TaskInfo left, TaskInfo right) {
+                return criticalPaths.get(right).compareTo(criticalPaths.get(left));
+            }
+        };
+        List<TaskInfo> ordered = new ArrayList<TaskInfo>(plan.size());
+        List<TaskInfo> group = new ArrayList<TaskInfo>();
+        for (TaskInfo taskInfo : plan) {
+            group.add(taskInfo);
+            if (entryTasks.contains(taskInfo)) {
+                Collections.sort(group, longestCriticalPathFirst);
+                ordered.addAll(group);
+                group.clear();
+            }
+        }
+        Collections.sort(group, longestCriticalPathFirst);
+        ordered.addAll(group);
+        executionQueue.reset(ordered);
+    }
+
     @Override
     public Set<Task> getDependencies(Task task) {
         TaskInfo node = executionPlan.get(task);
@@ -533,6 +594,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 reachableCache.clear();
                 dependenciesCompleteCache.clear();
                 runningTasks.clear();
+                runningTaskMutations.clear();
                 return FINISHED;
             }
         });
@@ -568,7 +630,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                     }
                 }
 
-                workRemaining.set(workRemaining());
+                workRemaining.set(executionQueue.hasIncompleteTasks());
                 if (!workRemaining.get()) {
                     return FINISHED;
                 }
@@ -600,10 +662,17 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private TaskInfo selectNextTask(final WorkerLease workerLease) {
         final AtomicReference<TaskInfo> selected = new AtomicReference<TaskInfo>();
-        final Iterator<TaskInfo> iterator = executionQueue.iterator();
+        final Iterator<TaskInfo> iterator = executionQueue.candidates();
         while (iterator.hasNext()) {
             final TaskInfo taskInfo = iterator.next();
-            if (taskInfo.isReady() && allDependenciesComplete(taskInfo)) {
+            if (taskInfo.isReady()) {
+                TaskInfo incompleteDependency = firstIncompleteDependency(taskInfo);
+                if (incompleteDependency != null) {
+                    // Don't look at this task again until the dependency is complete
+                    iterator.remove();
+                    executionQueue.waitFor(taskInfo, incompleteDependency);
+                    continue;
+                }
                 coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                     @Override
                     public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
@@ -632,7 +701,11 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        return selected.get();
+        TaskInfo selectedTask = selected.get();
+        if (selectedTask != null && selectedTask.isComplete()) {
+            executionQueue.taskComplete(selectedTask);
+        }
+        return selectedTask;
     }
 
     private TaskMutationInfo getResolvedTaskMutationInfo(TaskInfo taskInfo) {
@@ -667,17 +740,18 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
-    private boolean allDependenciesComplete(TaskInfo taskInfo) {
+    @Nullable
+    private TaskInfo firstIncompleteDependency(TaskInfo taskInfo) {
         if (dependenciesCompleteCache.contains(taskInfo)) {
-            return true;
+            return null;
         }
 
-        boolean dependenciesComplete = taskInfo.allDependenciesComplete();
-        if (dependenciesComplete) {
+        TaskInfo incompleteDependency = taskInfo.getFirstIncompleteDependency();
+        if (incompleteDependency == null) {
             dependenciesCompleteCache.add(taskInfo);
         }
 
-        return dependenciesComplete;
+        return incompleteDependency;
     }
 
     private boolean allProjectsLocked() {
@@ -717,7 +791,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         if (!runningTasks.isEmpty()) {
             Set<String> candidateTaskOutputs = taskMutationInfo.outputPaths;
             Set<String> candidateTaskMutations = !candidateTaskOutputs.isEmpty() ? candidateTaskOutputs : candidateTaskDestroyables;
-            Pair<TaskInfo, String> overlap = firstRunningTaskWithOverlappingMutations(candidateTaskMutations);
+            String overlap = firstOverlappingRunningTaskMutation(candidateTaskMutations);
             if (overlap != null) {
                 return false;
             }
@@ -750,15 +824,11 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     @Nullable
-    private Pair<TaskInfo, String> firstRunningTaskWithOverlappingMutations(Set<String> candidateTaskMutations) {
-        if (!candidateTaskMutations.isEmpty()) {
-            for (TaskInfo runningTask : runningTasks) {
-                TaskMutationInfo taskMutationInfo = taskMutations.get(runningTask);
-                Iterable<String> runningTaskMutations = Iterables.concat(taskMutationInfo.outputPaths, taskMutationInfo.destroyablePaths);
-                String firstOverlap = findFirstOverlap(candidateTaskMutations, runningTaskMutations);
-                if (firstOverlap != null) {
-                    return Pair.of(runningTask, firstOverlap);
-                }
+    private String firstOverlappingRunningTaskMutation(Set<String> candidateTaskMutations) {
+        for (String path : candidateTaskMutations) {
+            String overlap = runningTaskMutations.findOverlap(path);
+            if (overlap != null) {
+                return overlap;
             }
         }
 
@@ -869,11 +939,18 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private void recordTaskStarted(TaskInfo taskInfo) {
         runningTasks.add(taskInfo);
+        TaskMutationInfo taskMutationInfo = taskMutations.get(taskInfo);
+        for (String path : Iterables.concat(taskMutationInfo.outputPaths, taskMutationInfo.destroyablePaths)) {
+            runningTaskMutations.add(path);
+        }
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
         runningTasks.remove(taskInfo);
         TaskMutationInfo taskMutationInfo = taskMutations.get(taskInfo);
+        for (String path : Iterables.concat(taskMutationInfo.outputPaths, taskMutationInfo.destroyablePaths)) {
+            runningTaskMutations.remove(path);
+        }
         for (TaskInfo producerTask : taskMutationInfo.consumesOutputOf) {
             TaskMutationInfo producerTaskMutationInfo = taskMutations.get(producerTask);
             if (producerTaskMutationInfo.consumingTasks.remove(taskInfo) && canRemoveTaskMutation(producerTaskMutationInfo)) {
@@ -901,6 +978,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
                 taskInfo.finishExecution();
                 recordTaskCompleted(taskInfo);
+                executionQueue.taskComplete(taskInfo);
                 return FINISHED;
             }
         });
@@ -976,6 +1054,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 aborted = true;
             }
         }
+        if (aborted) {
+            executionQueue.wakeAll();
+        }
         return aborted;
     }
 
@@ -1017,15 +1098,6 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return true;
     }
 
-    private boolean workRemaining() {
-        for (TaskInfo taskInfo : executionQueue) {
-            if (!taskInfo.isComplete()) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private static class GraphEdge {
         private final TaskInfo from;
         private final TaskInfo to;
@@ -29,6 +29,7 @@ import org.gradle.api.execution.internal.ExecuteTaskBuildOperationDetails;
 import org.gradle.api.execution.internal.ExecuteTaskBuildOperationResult;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.TaskExecutionContext;
 import org.gradle.api.internal.tasks.TaskStateInternal;
@@ -56,6 +57,8 @@ import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -64,6 +67,11 @@ import java.util.Set;
 public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultTaskGraphExecuter.class);
 
+    /**
+     * When set, task durations are recorded and parallel builds start the tasks with the longest estimated critical path first.
+     */
+    public static final String CRITICAL_PATH_SCHEDULING_PROPERTY = "org.gradle.internal.tasks.critical-path-scheduling";
+
     private enum TaskGraphState {
         EMPTY, DIRTY, POPULATED
     }
@@ -71,19 +79,23 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final TaskPlanExecutor taskPlanExecutor;
     // This currently needs to be lazy, as it uses state that is not available when the graph is created
     private final Factory<? extends TaskExecuter> taskExecuter;
+    private final Factory<? extends TaskDurationRepository> taskDurations;
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final DefaultTaskExecutionPlan taskExecutionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final GradleInternal gradleInternal;
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
     private final Set<Task> requestedTasks = Sets.newTreeSet();
     private Spec<? super Task> filter = Specs.SATISFIES_ALL;
 
-    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService, ResourceLockCoordinationService coordinationService, GradleInternal gradleInternal) {
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, Factory<? extends TaskDurationRepository> taskDurations, BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService, ResourceLockCoordinationService coordinationService, GradleInternal gradleInternal) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.taskExecuter = taskExecuter;
+        this.taskDurations = taskDurations;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.gradleInternal = gradleInternal;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
         taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken, coordinationService, workerLeaseService, gradleInternal);
@@ -127,7 +139,14 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
 
         graphListeners.getSource().graphPopulated(this);
         try {
-            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), buildOperationExecutor.getCurrentOperation()));
+            TaskDurationRepository durations = null;
+            if (Boolean.getBoolean(CRITICAL_PATH_SCHEDULING_PROPERTY)) {
+                durations = taskDurations.create();
+                if (gradleInternal.getStartParameter().isParallelProjectExecutionEnabled()) {
+                    taskExecutionPlan.orderByCriticalPath(durations);
+                }
+            }
+            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), durations, buildOperationExecutor.getCurrentOperation()));
             LOGGER.debug("Timing: Executing the DAG took " + clock.getElapsed());
         } finally {
             taskExecutionPlan.clear();
@@ -237,10 +256,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
      */
     private class EventFiringTaskWorker implements Action<TaskInternal> {
         private final TaskExecuter taskExecuter;
+        private final TaskDurationRepository taskDurations;
         private final BuildOperationState parentOperation;
 
-        EventFiringTaskWorker(TaskExecuter taskExecuter, BuildOperationState parentOperation) {
+        EventFiringTaskWorker(TaskExecuter taskExecuter, @Nullable TaskDurationRepository taskDurations, BuildOperationState parentOperation) {
             this.taskExecuter = taskExecuter;
+            this.taskDurations = taskDurations;
             this.parentOperation = parentOperation;
         }
 
@@ -253,7 +274,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
 
                     TaskStateInternal state = task.getState();
                     TaskExecutionContext ctx = new DefaultTaskExecutionContext();
+                    Timer timer = Time.startTimer();
                     taskExecuter.execute(task, state, ctx);
+                    // Only record durations of tasks that ran their actions, so that up-to-date or skipped tasks do not replace the previous duration
+                    if (taskDurations != null && state.getFailure() == null && !state.getSkipped() && state.getDidWork()) {
+                        taskDurations.recordDuration(task.getIdentityPath().getPath(), timer.getElapsedMillis());
+                    }
                     context.setResult(new ExecuteTaskBuildOperationResult(state, ctx));
 
                     // If this fails, it masks the task failure.
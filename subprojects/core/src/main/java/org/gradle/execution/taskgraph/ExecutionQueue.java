@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The tasks of an execution plan that have not been selected for execution yet, in the order of the plan.
+ *
+ * <p>A task that cannot run because one of its dependencies is incomplete can be parked on that dependency. It is then left out of the
+ * candidates until the dependency is complete, so that selecting the next task to run does not need to look at every waiting task again.</p>
+ */
+class ExecutionQueue {
+    private final TreeMap<Integer, TaskInfo> candidates = new TreeMap<Integer, TaskInfo>();
+    private final Map<TaskInfo, Integer> positions = Maps.newIdentityHashMap();
+    private final Map<TaskInfo, List<TaskInfo>> waitingTasks = Maps.newIdentityHashMap();
+
+    /**
+     * Replaces the contents of this queue with the given tasks, in the given order.
+     */
+    public void reset(Iterable<TaskInfo> tasks) {
+        clear();
+        int position = 0;
+        for (TaskInfo task : tasks) {
+            positions.put(task, position);
+            candidates.put(position, task);
+            position++;
+        }
+    }
+
+    public void clear() {
+        candidates.clear();
+        positions.clear();
+        waitingTasks.clear();
+    }
+
+    /**
+     * Returns the tasks that are not parked, in the order of the plan. Removing a task through the iterator removes it from this queue.
+     */
+    public Iterator<TaskInfo> candidates() {
+        return candidates.values().iterator();
+    }
+
+    /**
+     * Parks a task, which has been removed from the candidates, until the given dependency is complete.
+     */
+    public void waitFor(TaskInfo task, TaskInfo dependency) {
+        List<TaskInfo> waiting = waitingTasks.get(dependency);
+        if (waiting == null) {
+            waiting = new ArrayList<TaskInfo>();
+            waitingTasks.put(dependency, waiting);
+        }
+        waiting.add(task);
+    }
+
+    /**
+     * Makes the tasks parked on the given task candidates again. Must not be called while iterating over the candidates.
+     */
+    public void taskComplete(TaskInfo task) {
+        List<TaskInfo> waiting = waitingTasks.remove(task);
+        if (waiting != null) {
+            for (TaskInfo waitingTask : waiting) {
+                candidates.put(positions.get(waitingTask), waitingTask);
+            }
+        }
+    }
+
+    /**
+     * Makes all parked tasks candidates again. Used when many tasks may have completed at once, for example when execution is aborted.
+     */
+    public void wakeAll() {
+        for (List<TaskInfo> waiting : waitingTasks.values()) {
+            for (TaskInfo waitingTask : waiting) {
+                candidates.put(positions.get(waitingTask), waitingTask);
+            }
+        }
+        waitingTasks.clear();
+    }
+
+    public boolean hasIncompleteTasks() {
+        if (!waitingTasks.isEmpty()) {
+            return true;
+        }
+        for (TaskInfo task : candidates.values()) {
+            if (!task.isComplete()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multiset of absolute paths, stored by path segment, which can find a path that is the same as, an ancestor of or a descendant of
+ * a given path without comparing the given path with each path of the set.
+ */
+class PathTrie {
+    private final char separator;
+    private final Node root = new Node(null);
+
+    PathTrie() {
+        this(File.separatorChar);
+    }
+
+    PathTrie(char separator) {
+        this.separator = separator;
+    }
+
+    public void add(String path) {
+        Node node = root;
+        node.pathsInSubtree++;
+        for (String segment : segments(path)) {
+            node = node.child(segment);
+            node.pathsInSubtree++;
+        }
+        if (node.count++ == 0) {
+            node.path = path;
+        }
+    }
+
+    /**
+     * Removes one occurrence of the given path, which must have been added before.
+     */
+    public void remove(String path) {
+        Node node = root;
+        node.pathsInSubtree--;
+        for (String segment : segments(path)) {
+            Node child = node.children.get(segment);
+            if (--child.pathsInSubtree == 0) {
+                node.children.remove(segment);
+                return;
+            }
+            node = child;
+        }
+        if (--node.count == 0) {
+            node.path = null;
+        }
+    }
+
+    /**
+     * Returns the shorter of the given path and a path of this set that is the same as, an ancestor of or a descendant of it, or null when there is no such path.
+     */
+    @Nullable
+    public String findOverlap(String path) {
+        if (root.pathsInSubtree == 0) {
+            return null;
+        }
+        Node node = root;
+        if (node.path != null) {
+            return node.path;
+        }
+        for (String segment : segments(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+            if (node.path != null) {
+                return node.path;
+            }
+        }
+        return path;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.pathsInSubtree = 0;
+        root.count = 0;
+        root.path = null;
+    }
+
+    /**
+     * Splits the given path into its segments, ignoring empty segments so that the root, trailing separators and repeated separators are handled.
+     */
+    private List<String> segments(String path) {
+        List<String> segments = new ArrayList<String>();
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf(separator, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static class Node {
+        private final String segment;
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private int pathsInSubtree;
+        private int count;
+        private String path;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node child(String segment) {
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node(segment);
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
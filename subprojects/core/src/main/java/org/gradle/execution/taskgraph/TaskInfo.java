@@ -19,6 +19,7 @@ package org.gradle.execution.taskgraph;
 import org.gradle.api.internal.TaskInternal;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.TreeSet;
 
 public class TaskInfo implements Comparable<TaskInfo> {
@@ -135,19 +136,24 @@ public class TaskInfo implements Comparable<TaskInfo> {
     }
 
     public boolean allDependenciesComplete() {
+        return getFirstIncompleteDependency() == null;
+    }
+
+    @Nullable
+    public TaskInfo getFirstIncompleteDependency() {
         for (TaskInfo dependency : mustSuccessors) {
             if (!dependency.isComplete()) {
-                return false;
+                return dependency;
             }
         }
 
         for (TaskInfo dependency : dependencySuccessors) {
             if (!dependency.isComplete()) {
-                return false;
+                return dependency;
             }
         }
 
-        return true;
+        return null;
     }
 
     public boolean allDependenciesSuccessful() {
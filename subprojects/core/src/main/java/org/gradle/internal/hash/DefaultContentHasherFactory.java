@@ -16,13 +16,55 @@
 
 package org.gradle.internal.hash;
 
+/**
+ * Creates the hashers used for file content. By default these use MD5.
+ *
+ * Setting the {@value #FAST_HASHING_PROPERTY} system property switches to the non-cryptographic {@link Hashing#murmur3_128()} function instead, which is considerably
+ * faster for large files. As task input and output hashes then change, the build cache keys calculated from them are different from those of builds that use the default,
+ * though the keys themselves are still calculated using MD5. Persistent caches of file hashes use {@link #cacheNameFor(String)} to keep hashes calculated with different functions apart.
+ */
 public class DefaultContentHasherFactory implements ContentHasherFactory {
-    private static final HashCode SIGNATURE = Hashing.md5().hashString(DefaultContentHasherFactory.class.getName());
+    public static final String FAST_HASHING_PROPERTY = "org.gradle.internal.hash.fast";
+
+    private static final String MD5 = "MD5";
+    private static final String MURMUR3_128 = "murmur3_128";
+
+    private final HashFunction hashFunction;
+    private final String hashFunctionName;
+    private final HashCode signature;
+
+    public DefaultContentHasherFactory() {
+        this(Hashing.md5(), MD5);
+    }
+
+    private DefaultContentHasherFactory(HashFunction hashFunction, String hashFunctionName) {
+        this.hashFunction = hashFunction;
+        this.hashFunctionName = hashFunctionName;
+        this.signature = hashFunction.hashString(DefaultContentHasherFactory.class.getName());
+    }
+
+    public static DefaultContentHasherFactory fromSystemProperties() {
+        return Boolean.getBoolean(FAST_HASHING_PROPERTY) ? new DefaultContentHasherFactory(Hashing.murmur3_128(), MURMUR3_128) : new DefaultContentHasherFactory();
+    }
+
+    /**
+     * The name of the hash function used by the hashers of this factory.
+     */
+    public String getHashFunctionName() {
+        return hashFunctionName;
+    }
+
+    /**
+     * Returns the name to use for a persistent cache of hashes created by this factory. The name of the cache for MD5 hashes is unchanged.
+     */
+    public String cacheNameFor(String baseName) {
+        return hashFunctionName.equals(MD5) ? baseName : baseName + "-" + hashFunctionName;
+    }
 
     @Override
     public Hasher create() {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putHash(SIGNATURE);
+        Hasher hasher = hashFunction.newHasher();
+        hasher.putHash(signature);
         return hasher;
     }
 }
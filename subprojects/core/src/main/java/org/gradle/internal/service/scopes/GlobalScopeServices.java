@@ -340,8 +340,8 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
         return new DefaultBuildOperationIdFactory();
     }
 
-    ContentHasherFactory createHasherFactory() {
-        return new DefaultContentHasherFactory();
+    DefaultContentHasherFactory createHasherFactory() {
+        return DefaultContentHasherFactory.fromSystemProperties();
     }
 
     StreamHasher createStreamHasher(ContentHasherFactory hasherFactory) {
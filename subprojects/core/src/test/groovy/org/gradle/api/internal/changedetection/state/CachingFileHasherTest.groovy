@@ -193,4 +193,57 @@ class CachingFileHasherTest extends Specification {
         }
         0 * _._
     }
+
+    def usesHashFromSharedTableWithoutLoadingCachedValue() {
+        def stat = fileSystem.stat(file)
+        def sharedHashes = new SharedFileHashTable(tmpDir.file("shared.table"), 16)
+        sharedHashes.put(file.absolutePath, hash, stat.length, stat.lastModified)
+        1 * cacheAccess.createCache("fileHashes", _, _, _, _) >> cache
+        def hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, sharedHashes)
+
+        when:
+        def result = hasher.hash(file)
+
+        then:
+        result == hash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        0 * _._
+
+        cleanup:
+        sharedHashes?.close()
+    }
+
+    def storesHashesInSharedTable() {
+        def stat = fileSystem.stat(file)
+        def sharedHashes = new SharedFileHashTable(tmpDir.file("shared.table"), 16)
+        1 * cacheAccess.createCache("fileHashes", _, _, _, _) >> cache
+        def hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, sharedHashes)
+
+        when:
+        hasher.hash(file)
+
+        then:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * cache.get(file.absolutePath) >> null
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.absolutePath, _)
+        0 * _._
+
+        and:
+        sharedHashes.get(file.absolutePath).hash == hash
+        sharedHashes.get(file.absolutePath).length == stat.length
+        sharedHashes.get(file.absolutePath).timestamp == stat.lastModified
+
+        when:
+        hasher.discard(file.absolutePath)
+
+        then:
+        1 * cache.remove(file.absolutePath)
+        sharedHashes.get(file.absolutePath) == null
+
+        cleanup:
+        sharedHashes?.close()
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import spock.lang.Specification
+
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.ORDERED
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED
+
+class CompactSnapshotMapTest extends Specification {
+    def hash = Hashing.md5().hashString("foo")
+
+    def "contains the same entries as the original map in the same order"() {
+        def snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        snapshots["/root/b/file.txt"] = new DefaultNormalizedFileSnapshot("b/file.txt", new FileHashSnapshot(hash))
+        snapshots["/root/a"] = new DefaultNormalizedFileSnapshot("a", DirContentSnapshot.instance)
+        snapshots["/root/a/other.txt"] = new DefaultNormalizedFileSnapshot("renamed.txt", new FileHashSnapshot(HashCode.fromInt(1234)))
+        snapshots["/root/a/missing.txt"] = new NonNormalizedFileSnapshot("/root/a/missing.txt", MissingFileContentSnapshot.instance)
+        snapshots["/root/c/indexed.txt"] = new IndexedNormalizedFileSnapshot("/root/c/indexed.txt", 8, new FileHashSnapshot(hash))
+        snapshots["/other/ignored.txt"] = new IgnoredPathFileSnapshot(new FileHashSnapshot(hash))
+        snapshots["/other/😀.txt"] = new NonNormalizedFileSnapshot("/other/😀.txt", new FileHashSnapshot(hash))
+        snapshots["/other/😁.txt"] = new NonNormalizedFileSnapshot("/other/😁.txt", new FileHashSnapshot(hash))
+
+        when:
+        def compact = CompactSnapshotMap.of(snapshots)
+
+        then:
+        compact.size() == snapshots.size()
+        compact.keySet() as List == snapshots.keySet() as List
+        compact.values() as List == snapshots.values() as List
+        compact == snapshots
+        compact["/root/a/other.txt"].normalizedPath == "renamed.txt"
+        compact["/root/b/file.txt"].normalizedPath == "b/file.txt"
+        compact["/root/c/indexed.txt"].normalizedPath == "indexed.txt"
+        compact["/root/a/missing.txt"].snapshot instanceof MissingFileContentSnapshot
+        compact["/root/a/other.txt"].snapshot.contentMd5 == HashCode.fromInt(1234)
+        compact["/unknown"] == null
+        !compact.containsKey("/unknown")
+    }
+
+    def "empty map has no entries"() {
+        when:
+        def compact = CompactSnapshotMap.of([:])
+
+        then:
+        compact.isEmpty()
+        compact.entrySet().isEmpty()
+        compact["/root"] == null
+    }
+
+    def "encodes shared path prefixes only once"() {
+        def snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>()
+        100.times {
+            def path = "/some/rather/long/path/to/a/source/directory/file${it}.txt"
+            snapshots[path] = new NonNormalizedFileSnapshot(path, new FileHashSnapshot(hash))
+        }
+
+        when:
+        def compact = CompactSnapshotMap.of(snapshots)
+
+        then:
+        compact.encodedSize < 100 * (16 + 20)
+        compact == snapshots
+    }
+
+    def "compact snapshot detects the same changes as the original snapshot"() {
+        def previous = new DefaultFileCollectionSnapshot([
+            "/1": new DefaultNormalizedFileSnapshot("1", new FileHashSnapshot(hash)),
+            "/2": new DefaultNormalizedFileSnapshot("2", new FileHashSnapshot(hash)),
+        ], compareStrategy, true)
+        def current = new DefaultFileCollectionSnapshot([
+            "/2": new DefaultNormalizedFileSnapshot("2", new FileHashSnapshot(HashCode.fromInt(1))),
+            "/3": new DefaultNormalizedFileSnapshot("3", new FileHashSnapshot(hash)),
+        ], compareStrategy, true)
+
+        expect:
+        current.iterateContentChangesSince(previous.compact(), "test", true)*.message == current.iterateContentChangesSince(previous, "test", true)*.message
+        current.compact().iterateContentChangesSince(previous.compact(), "test", true)*.message == current.iterateContentChangesSince(previous, "test", true)*.message
+
+        where:
+        compareStrategy << [ORDERED, UNORDERED]
+    }
+}
@@ -21,6 +21,7 @@ import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.TestFileHasher
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.serialize.HashCodeSerializer
 import org.gradle.normalization.internal.InputNormalizationStrategy
 import org.gradle.test.fixtures.file.CleanupTestDirectory
@@ -204,6 +205,53 @@ class DefaultClasspathSnapshotterTest extends Specification {
         values == ['f31495fd1bb4b8c3b8fb1f46a68adf9e', '4c54ecab47d005e6862ced54627c6208'] as Set
     }
 
+    def "hashes jars which are not cached using build operations and keeps classpath order"() {
+        def buildOperationExecutor = new TestBuildOperationExecutor()
+        snapshotter = new DefaultClasspathSnapshotter(cacheService, directoryFileTreeFactory, fileSystemSnapshotter, stringInterner, buildOperationExecutor)
+        def zipFile = file('library.jar')
+        file('zipContents').create {
+            file('firstFile.txt').text = "Some text"
+            file('secondFile.txt').text = "Second File"
+            subdir {
+                file('someOtherFile.log').text = "File in subdir"
+            }
+        }.zipTo(zipFile)
+        def classes = file('classes').create {
+            file('thirdFile.txt').text = "Third file"
+        }
+        def zipFile2 = file('another-library.jar')
+        file('anotherZipContents').create {
+            file('thirdFile.txt').text = "third file"
+            file('forthFile.txt').text = "forth file"
+            subdir {
+                file('someEvenOtherFile.log').text = "another file in subdir"
+            }
+        }.zipTo(zipFile2)
+
+        when:
+        def fileCollectionSnapshot = snapshot(zipFile, classes, zipFile2)
+
+        then:
+        fileCollectionSnapshot == [
+            ['library.jar', '', 'f31495fd1bb4b8c3b8fb1f46a68adf9e'],
+            ['thirdFile.txt', 'thirdFile.txt', '3f1d3e7fb9620156f8e911fb90d89c42'],
+            ['another-library.jar', '', '4c54ecab47d005e6862ced54627c6208']
+        ]
+        buildOperationExecutor.operations*.displayName == ["Snapshot classpath entry ${zipFile}", "Snapshot classpath entry ${zipFile2}"]*.toString()
+
+        when:
+        buildOperationExecutor = new TestBuildOperationExecutor()
+        snapshotter = new DefaultClasspathSnapshotter(cacheService, directoryFileTreeFactory, fileSystemSnapshotter, stringInterner, buildOperationExecutor)
+        fileCollectionSnapshot = snapshot(zipFile2, zipFile)
+
+        then:
+        fileCollectionSnapshot == [
+            ['another-library.jar', '', '4c54ecab47d005e6862ced54627c6208'],
+            ['library.jar', '', 'f31495fd1bb4b8c3b8fb1f46a68adf9e']
+        ]
+        buildOperationExecutor.operations.empty
+    }
+
     def snapshot(TestFile... classpath) {
         fileSystemMirror.beforeTaskOutputChanged()
         def fileCollectionSnapshot = snapshotter.snapshot(files(classpath), null, InputNormalizationStrategy.NOT_CONFIGURED)
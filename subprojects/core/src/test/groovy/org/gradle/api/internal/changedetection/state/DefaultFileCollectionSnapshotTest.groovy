@@ -93,4 +93,54 @@ class DefaultFileCollectionSnapshotTest extends Specification {
             .hash())
         0 * _
     }
+
+    def "does not compare individual files when aggregate hashes match"() {
+        def currentSnapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+        ], compareStrategy, false)
+        def previousSnapshot = Mock(FileCollectionSnapshot)
+
+        when:
+        def changes = currentSnapshot.iterateContentChangesSince(previousSnapshot, "test", includeAdded)
+        then:
+        0 * _
+
+        when:
+        def hasChanges = changes.hasNext()
+        then:
+        1 * previousSnapshot.getHash() >> currentSnapshot.hash
+        0 * _
+        !hasChanges
+
+        where:
+        compareStrategy | includeAdded
+        UNORDERED       | true
+        UNORDERED       | false
+        ORDERED         | true
+        ORDERED         | false
+    }
+
+    def "compares individual files when aggregate hashes differ"() {
+        def currentSnapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(234))),
+        ], UNORDERED, false)
+        def previousSnapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+            "file2.txt": new DefaultNormalizedFileSnapshot("file2.txt", new FileHashSnapshot(HashCode.fromInt(345))),
+        ], UNORDERED, false)
+
+        expect:
+        currentSnapshot.iterateContentChangesSince(previousSnapshot, "test", true)*.message == ["test file file2.txt has changed."]
+        currentSnapshot.iterateContentChangesSince(previousSnapshot.compact(), "test", true)*.message == ["test file file2.txt has changed."]
+    }
+
+    def "compact snapshot keeps aggregate hash"() {
+        def snapshot = new DefaultFileCollectionSnapshot([
+            "file1.txt": new DefaultNormalizedFileSnapshot("file1.txt", new FileHashSnapshot(HashCode.fromInt(123))),
+        ], UNORDERED, false)
+
+        expect:
+        snapshot.compact().hash == snapshot.hash
+    }
 }
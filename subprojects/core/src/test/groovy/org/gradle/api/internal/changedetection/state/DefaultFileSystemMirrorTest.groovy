@@ -19,6 +19,10 @@ package org.gradle.api.internal.changedetection.state
 import org.gradle.BuildResult
 import org.gradle.api.internal.GradleInternal
 import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -68,6 +72,36 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getContent(file.path) == null
     }
 
+    def "only discards state about files in, above or below the changed outputs"() {
+        def outputDir = tmpDir.file("project/build/output")
+        def inside = outputDir.file("classes/A.class")
+        def ancestor = tmpDir.file("project/build")
+        def sibling = tmpDir.file("project/src/main/java")
+        def siblingWithCommonPrefix = tmpDir.file("project/build/outputs")
+
+        given:
+        [outputDir, inside, ancestor, sibling, siblingWithCommonPrefix].each { file ->
+            mirror.putFile(Stub(FileSnapshot) { getPath() >> file.path })
+            mirror.putDirectory(Stub(FileTreeSnapshot) { getPath() >> file.path })
+            mirror.putContent(file.path, Stub(Snapshot))
+        }
+
+        when:
+        mirror.beforeTaskOutputChanged([outputDir])
+
+        then:
+        [outputDir, inside, ancestor].each { file ->
+            assert mirror.getFile(file.path) == null
+            assert mirror.getDirectoryTree(file.path) == null
+            assert mirror.getContent(file.path) == null
+        }
+        [sibling, siblingWithCommonPrefix].each { file ->
+            assert mirror.getFile(file.path) != null
+            assert mirror.getDirectoryTree(file.path) != null
+            assert mirror.getContent(file.path) != null
+        }
+    }
+
     def "keeps state about a file until end of build"() {
         def file = tmpDir.file("a")
         def fileSnapshot = Stub(FileSnapshot)
@@ -141,4 +175,176 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getDirectoryTree(file.path) == null
         mirror.getContent(file.path) == null
     }
+
+    def "retains state about watched files between builds until they change"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def retainingMirror = new DefaultFileSystemMirror([], fileWatcherFactory, tmpDir.file("marker"))
+        def changedFile = tmpDir.file("dir/changed")
+        def unchangedFile = tmpDir.file("dir/unchanged")
+        FileWatcherListener listener = null
+
+        when:
+        retainingMirror.getFile(changedFile.path) == null
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> changedFile.path })
+        retainingMirror.getFile(unchangedFile.path) == null
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> unchangedFile.path })
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> { onError, FileWatcherListener l ->
+            listener = l
+            return fileWatcher
+        }
+        // The marker directory and the directory containing both files
+        1 * fileWatcher.watch({ it.roots as List == [tmpDir.file("marker")] })
+        1 * fileWatcher.watch({ it.roots as List == [changedFile.parentFile] })
+        0 * fileWatcher.watch(_)
+
+        when:
+        retainingMirror.beforeComplete()
+
+        then:
+        retainingMirror.getFile(changedFile.path) != null
+        retainingMirror.getFile(unchangedFile.path) != null
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(changedFile))
+
+        then:
+        retainingMirror.getFile(changedFile.path) == null
+        retainingMirror.getFile(unchangedFile.path) != null
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.undefined())
+
+        then:
+        retainingMirror.getFile(unchangedFile.path) == null
+    }
+
+    def "applies reported changes to the state of the changed location, its descendants and its ancestors"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def retainingMirror = new DefaultFileSystemMirror([], fileWatcherFactory, tmpDir.file("marker"))
+        def changedDir = tmpDir.file("project/src")
+        def inside = changedDir.file("main/A.java")
+        def ancestor = tmpDir.file("project")
+        def sibling = tmpDir.file("project/src-other")
+        FileWatcherListener listener = null
+        fileWatcherFactory.watch(_, _) >> { onError, FileWatcherListener l ->
+            listener = l
+            return fileWatcher
+        }
+
+        given:
+        [changedDir, inside, ancestor, sibling].each { file ->
+            retainingMirror.getDirectoryTree(file.path)
+            retainingMirror.putDirectory(Stub(FileTreeSnapshot) { getPath() >> file.path })
+        }
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(changedDir))
+
+        then:
+        [changedDir, inside, ancestor].each { file ->
+            assert retainingMirror.getDirectoryTree(file.path) == null
+        }
+        retainingMirror.getDirectoryTree(sibling.path) != null
+    }
+
+    def "discards state between builds for locations that were not watched before their state was calculated"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def retainingMirror = new DefaultFileSystemMirror([], fileWatcherFactory, tmpDir.file("marker"))
+        def file = tmpDir.file("a")
+        fileWatcherFactory.watch(_, _) >> Mock(FileWatcher)
+
+        when:
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> file.path })
+
+        then:
+        retainingMirror.getFile(file.path) != null
+
+        when:
+        retainingMirror.beforeComplete()
+
+        then:
+        retainingMirror.getFile(file.path) == null
+    }
+
+    def "discards retained state when pending changes are not reported at the start of a build"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def retainingMirror = new DefaultFileSystemMirror([], fileWatcherFactory, tmpDir.file("marker"), 50)
+        def file = tmpDir.file("a")
+        fileWatcherFactory.watch(_, _) >> Mock(FileWatcher)
+
+        given:
+        retainingMirror.getFile(file.path)
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> file.path })
+        retainingMirror.beforeComplete()
+
+        when:
+        retainingMirror.afterStart()
+
+        then:
+        retainingMirror.getFile(file.path) == null
+    }
+
+    def "discards state at the start of the next build that was stored after a change to its location was reported"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def markerDir = tmpDir.file("marker")
+        def retainingMirror = new DefaultFileSystemMirror([], fileWatcherFactory, markerDir)
+        def changedFile = tmpDir.file("changed")
+        def unchangedFile = tmpDir.file("unchanged")
+        FileWatcherListener listener = null
+        fileWatcherFactory.watch(_, _) >> { onError, FileWatcherListener l ->
+            listener = l
+            return fileWatcher
+        }
+
+        given:
+        retainingMirror.getFile(changedFile.path)
+        retainingMirror.getFile(unchangedFile.path)
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(changedFile))
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> changedFile.path })
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> unchangedFile.path })
+        retainingMirror.beforeComplete()
+
+        when:
+        def reporter = Thread.start {
+            def markerFile = markerDir.file("marker")
+            while (!markerFile.exists()) {
+                Thread.sleep(10)
+            }
+            listener.onChange(fileWatcher, FileWatcherEvent.modify(markerFile))
+        }
+        retainingMirror.afterStart()
+        reporter.join()
+
+        then:
+        retainingMirror.getFile(changedFile.path) == null
+        retainingMirror.getFile(unchangedFile.path) != null
+    }
+
+    def "discards state between builds when file system cannot be watched"() {
+        def fileWatcherFactory = Mock(FileWatcherFactory)
+        def fileWatcher = Mock(FileWatcher)
+        def retainingMirror = new DefaultFileSystemMirror([], fileWatcherFactory, tmpDir.file("marker"))
+        def file = tmpDir.file("a")
+
+        when:
+        retainingMirror.getFile(file.path)
+
+        then:
+        1 * fileWatcherFactory.watch(_, _) >> fileWatcher
+        1 * fileWatcher.watch(_) >> { throw new IOException("broken") }
+        1 * fileWatcher.stop()
+
+        when:
+        retainingMirror.putFile(Stub(FileSnapshot) { getPath() >> file.path })
+        retainingMirror.beforeComplete()
+
+        then:
+        0 * fileWatcherFactory._
+        retainingMirror.getFile(file.path) == null
+    }
 }
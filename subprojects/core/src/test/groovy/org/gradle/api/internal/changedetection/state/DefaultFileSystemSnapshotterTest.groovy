@@ -23,6 +23,8 @@ import org.gradle.caching.internal.DefaultBuildCacheHasher
 import org.gradle.internal.file.FileType
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 import org.junit.Rule
 import spock.lang.Specification
 
@@ -179,6 +181,84 @@ class DefaultFileSystemSnapshotterTest extends Specification {
         snapshot.descendants*.relativePath*.pathString as Set == ["d1", "d1/f1", "f1"] as Set
     }
 
+    def "walks directory trees in parallel in the same order as a sequential walk"() {
+        def d = tmpDir.createDir("d")
+        d.createFile("f2")
+        d.createFile("f1")
+        d.createFile("d2/f1")
+        d.createFile("d1/d3/f3")
+        d.createFile("d1/f2")
+        d.createDir("d4")
+        def patterns = TestFiles.patternSetFactory.create()
+        patterns.exclude "**/f2"
+        def directoryWalker = new ParallelDirectoryWalker(TestFiles.fileSystem(), 4)
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), directoryWalker)
+
+        when:
+        def snapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+        def filtered = parallelSnapshotter.snapshotDirectoryTree(TestFiles.directoryFileTreeFactory().create(tmpDir.file("d"), patterns))
+        def sequential = snapshotter.snapshotDirectoryTree(d)
+        def sequentialFiltered = snapshotter.snapshotDirectoryTree(TestFiles.directoryFileTreeFactory().create(tmpDir.file("d"), patterns))
+
+        then:
+        snapshot.descendants*.relativePath*.pathString as Set == ["f1", "f2", "d1", "d1/f2", "d1/d3", "d1/d3/f3", "d2", "d2/f1", "d4"] as Set
+        snapshot.descendants*.relativePath*.pathString == sequential.descendants*.relativePath*.pathString
+        snapshot.descendants*.path == sequential.descendants*.path
+        snapshot.descendants*.type == sequential.descendants*.type
+        snapshot.descendants.find { it.path == d.file("d1/d3/f3").path }.content == new FileHashSnapshot(fileHasher.hash(d.file("d1/d3/f3")), d.file("d1/d3/f3").lastModified())
+        filtered.descendants*.relativePath*.pathString as Set == ["f1", "d1", "d1/d3", "d1/d3/f3", "d2", "d2/f1", "d4"] as Set
+        filtered.descendants*.relativePath*.pathString == sequentialFiltered.descendants*.relativePath*.pathString
+
+        cleanup:
+        directoryWalker.stop()
+    }
+
+    def "walks larger directory trees in parallel in the same order as a sequential walk"() {
+        def d = tmpDir.createDir("d")
+        (1..10).each { i ->
+            d.createFile("f${i}")
+            (1..5).each { j ->
+                d.createFile("d${i}/f${j}")
+                d.createFile("d${i}/d${j}/f1")
+                d.createDir("d${i}/d${j}/empty")
+            }
+        }
+        def directoryWalker = new ParallelDirectoryWalker(TestFiles.fileSystem(), 4)
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), directoryWalker)
+
+        when:
+        def snapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+        def sequential = snapshotter.snapshotDirectoryTree(d)
+
+        then:
+        snapshot.descendants.size() == 10 + 10 * (1 + 5 * 4)
+        snapshot.descendants*.path == sequential.descendants*.path
+
+        cleanup:
+        directoryWalker.stop()
+    }
+
+    @Requires(TestPrecondition.SYMLINKS)
+    def "walks directory trees in parallel through symbolic links and skips links to a directory being walked"() {
+        def d = tmpDir.createDir("d")
+        d.createFile("d1/f1")
+        d.file("d1/loop").createLink(d)
+        d.file("d2").createLink(d.file("d1"))
+        def directoryWalker = new ParallelDirectoryWalker(TestFiles.fileSystem(), 4)
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), directoryWalker)
+
+        when:
+        def snapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+        def sequential = snapshotter.snapshotDirectoryTree(d)
+
+        then:
+        snapshot.descendants*.relativePath*.pathString as Set == ["d1", "d1/f1", "d2", "d2/f1"] as Set
+        snapshot.descendants*.relativePath*.pathString == sequential.descendants*.relativePath*.pathString
+
+        cleanup:
+        directoryWalker.stop()
+    }
+
     def "snapshots a file and caches the result"() {
         def f = tmpDir.createFile("f")
 
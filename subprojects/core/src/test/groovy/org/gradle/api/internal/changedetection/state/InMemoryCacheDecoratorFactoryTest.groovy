@@ -202,4 +202,80 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "caches with a shared memory budget keep entries separate"() {
+        def sharedFactory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 1024 * 1024)
+        def target2 = Mock(MultiProcessSafePersistentIndexedCache)
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+
+        given:
+        def cache1 = sharedFactory.decorator(100, true).decorate("path/cache1.bin", "cache1", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache2 = sharedFactory.decorator(100, true).decorate("path/cache2.bin", "cache2", target2, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        def result1 = cache1.get("key")
+        def result2 = cache2.get("key")
+
+        then:
+        result1 == "result 1"
+        result2 == "result 2"
+        1 * target.get("key") >> "result 1"
+        1 * target2.get("key") >> "result 2"
+
+        when:
+        result1 = cache1.get("key")
+        result2 = cache2.get("key")
+
+        then:
+        result1 == "result 1"
+        result2 == "result 2"
+        0 * target._
+        0 * target2._
+
+        and:
+        def statistics = sharedFactory.statistics
+        statistics.hitCount() == 2
+        statistics.missCount() == 2
+        statistics.evictionCount() == 0
+    }
+
+    def "evicts entries of all caches when the shared memory budget is exceeded"() {
+        def sharedFactory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 100 * 1024)
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        target.get(_) >> { new byte[1024] }
+
+        given:
+        def cache1 = sharedFactory.decorator(1000, true).decorate("path/cache1.bin", "cache1", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache2 = sharedFactory.decorator(1000, true).decorate("path/cache2.bin", "cache2", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        (1..200).each {
+            cache1.get("key$it" as String)
+            cache2.get("key$it" as String)
+        }
+
+        then:
+        // Each entry weighs more than 1kB, so there is room for less than 100 of the 400 entries
+        sharedFactory.statistics.evictionCount() > 300
+    }
+
+    def "reports statistics of caches limited by number of entries"() {
+        def longLivedFactory = new InMemoryCacheDecoratorFactory(true, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 0)
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        target.get(_) >> "result"
+
+        given:
+        def cache = longLivedFactory.decorator(100, false).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        cache.get("key")
+        cache.get("key")
+        cache.get("other")
+
+        then:
+        longLivedFactory.statistics.hitCount() == 1
+        longLivedFactory.statistics.missCount() == 2
+    }
 }
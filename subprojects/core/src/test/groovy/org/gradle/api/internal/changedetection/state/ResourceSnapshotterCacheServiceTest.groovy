@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.file.RelativePath
+import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.serialize.HashCodeSerializer
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import spock.lang.Specification
+
+class ResourceSnapshotterCacheServiceTest extends Specification {
+    def fileStoreRoot = new File("cache/files").absoluteFile
+    def localCache = new InMemoryIndexedCache(new HashCodeSerializer())
+    def cachedJarCache = new InMemoryIndexedCache(new HashCodeSerializer())
+    def fileStore = Stub(CachedJarFileStore) {
+        getFileStoreRoots() >> [fileStoreRoot]
+    }
+    def cachedJarHashes = new CachedJarResourceHashCache(cachedJarCache, [fileStore])
+    def hasher = Mock(RegularFileHasher)
+    def configurationHash = HashCode.fromInt(1)
+
+    def "stores hashes of files in cached jar file stores in the cross-build cache"() {
+        def jar = snapshot(new File(fileStoreRoot, "group/lib.jar"), 456)
+        def hash = HashCode.fromInt(123)
+
+        when:
+        def result = new ResourceSnapshotterCacheService(localCache, cachedJarHashes).hashFile(jar, hasher, configurationHash)
+
+        then:
+        1 * hasher.hash(jar) >> hash
+        0 * _
+
+        and:
+        result == hash
+        cachedJarCache.keySet().size() == 1
+        localCache.keySet().empty
+
+        when:
+        result = new ResourceSnapshotterCacheService(new InMemoryIndexedCache(new HashCodeSerializer()), cachedJarHashes).hashFile(jar, hasher, configurationHash)
+
+        then:
+        0 * _
+
+        and:
+        result == hash
+    }
+
+    def "stores hashes of other files in the local cache"() {
+        def jar = snapshot(new File("build/libs/lib.jar").absoluteFile, 456)
+        def hash = HashCode.fromInt(123)
+
+        when:
+        def result = new ResourceSnapshotterCacheService(localCache, cachedJarHashes).hashFile(jar, hasher, configurationHash)
+
+        then:
+        1 * hasher.hash(jar) >> hash
+        0 * _
+
+        and:
+        result == hash
+        localCache.keySet().size() == 1
+        cachedJarCache.keySet().empty
+    }
+
+    def "hashes cached jar again when the hasher configuration is different"() {
+        def jar = snapshot(new File(fileStoreRoot, "group/lib.jar"), 456)
+        def service = new ResourceSnapshotterCacheService(localCache, cachedJarHashes)
+
+        when:
+        service.hashFile(jar, hasher, configurationHash)
+        service.hashFile(jar, hasher, HashCode.fromInt(2))
+        service.hashFile(jar, hasher, configurationHash)
+
+        then:
+        2 * hasher.hash(jar) >> HashCode.fromInt(123)
+        0 * _
+
+        and:
+        cachedJarCache.keySet().size() == 2
+    }
+
+    def "returns hash of file when it has been cached"() {
+        def jar = snapshot(new File("build/libs/lib.jar").absoluteFile, 456)
+        def emptyJar = snapshot(new File("build/libs/empty.jar").absoluteFile, 789)
+        def hash = HashCode.fromInt(123)
+        def service = new ResourceSnapshotterCacheService(localCache, cachedJarHashes)
+
+        expect:
+        service.getCachedHash(jar, configurationHash) == null
+
+        when:
+        service.hashFile(jar, hasher, configurationHash)
+        service.hashFile(emptyJar, hasher, configurationHash)
+
+        then:
+        1 * hasher.hash(jar) >> hash
+        1 * hasher.hash(emptyJar) >> null
+        0 * _
+
+        and:
+        service.getCachedHash(jar, configurationHash) == hash
+        service.getCachedHash(jar, HashCode.fromInt(2)) == null
+        service.getCachedHash(emptyJar, configurationHash) == null
+    }
+
+    private static RegularFileSnapshot snapshot(File file, int contentHash) {
+        return new RegularFileSnapshot(file.path, RelativePath.parse(true, file.name), true, new FileHashSnapshot(HashCode.fromInt(contentHash)))
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class SharedFileHashTableTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def tableFile = tmpDir.file("fileHashes.table")
+    def tables = []
+
+    def cleanup() {
+        tables*.close()
+    }
+
+    def "can store and load entries"() {
+        def table = table()
+        def hash1 = Hashing.md5().hashString("one")
+        def hash2 = Hashing.md5().hashString("two")
+
+        when:
+        table.put("/some/file", hash1, 12, 34)
+        table.put("/other/file", hash2, 56, 78)
+
+        then:
+        assertEntry(table.get("/some/file"), hash1, 12, 34)
+        assertEntry(table.get("/other/file"), hash2, 56, 78)
+        table.get("/missing/file") == null
+    }
+
+    def "replaces entry for the same path"() {
+        def table = table()
+        def hash = Hashing.md5().hashString("new")
+
+        when:
+        table.put("/some/file", Hashing.md5().hashString("old"), 12, 34)
+        table.put("/some/file", hash, 56, 78)
+
+        then:
+        assertEntry(table.get("/some/file"), hash, 56, 78)
+    }
+
+    def "can remove entries"() {
+        def table = table()
+        def hash = Hashing.md5().hashString("one")
+        table.put("/some/file", hash, 12, 34)
+        table.put("/other/file", hash, 12, 34)
+
+        when:
+        table.remove("/some/file")
+        table.remove("/missing/file")
+
+        then:
+        table.get("/some/file") == null
+        table.get("/other/file") != null
+    }
+
+    def "ignores hashes that are not 16 bytes long"() {
+        def table = table()
+
+        when:
+        table.put("/some/file", HashCode.fromInt(123), 12, 34)
+
+        then:
+        table.get("/some/file") == null
+    }
+
+    def "entries are visible to other instances using the same file"() {
+        def table1 = table()
+        def table2 = table()
+        def hash = Hashing.md5().hashString("one")
+
+        when:
+        table1.put("/some/file", hash, 12, 34)
+
+        then:
+        assertEntry(table2.get("/some/file"), hash, 12, 34)
+
+        when:
+        table2.remove("/some/file")
+
+        then:
+        table1.get("/some/file") == null
+    }
+
+    def "keeps most recently written entries when the table is full"() {
+        def table = table(4)
+        def hash = Hashing.md5().hashString("one")
+
+        when:
+        (1..20).each {
+            table.put("/file$it", hash, it, it)
+        }
+
+        then:
+        assertEntry(table.get("/file20"), hash, 20, 20)
+        (1..20).findAll { table.get("/file$it") != null }.size() <= 4
+    }
+
+    def "ignores entries that have been partially written"() {
+        def table = table(4)
+        def hash = Hashing.md5().hashString("one")
+        table.put("/some/file", hash, 12, 34)
+        def slot = (0..3).find { tableFile.bytes[it * 64 + 16 + 7] == 12 }
+
+        when:
+        def file = new RandomAccessFile(tableFile, "rw")
+        try {
+            file.seek(slot * 64 + 16)
+            file.writeLong(13)
+        } finally {
+            file.close()
+        }
+
+        then:
+        table.get("/some/file") == null
+
+        when:
+        table.put("/some/file", hash, 56, 78)
+
+        then:
+        assertEntry(table.get("/some/file"), hash, 56, 78)
+    }
+
+    private SharedFileHashTable table(int slotCount = 16) {
+        def table = new SharedFileHashTable(tableFile, slotCount)
+        tables << table
+        return table
+    }
+
+    private static void assertEntry(SharedFileHashTable.Entry entry, HashCode hash, long length, long timestamp) {
+        assert entry != null
+        assert entry.hash == hash
+        assert entry.length == length
+        assert entry.timestamp == timestamp
+    }
+}
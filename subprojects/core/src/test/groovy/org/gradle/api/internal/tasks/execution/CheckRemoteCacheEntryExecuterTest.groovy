@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputCachingState
+import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.caching.internal.controller.BuildCacheController
+import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey
+import spock.lang.Specification
+
+class CheckRemoteCacheEntryExecuterTest extends Specification {
+    def delegate = Mock(TaskExecuter)
+    def task = Stub(TaskInternal)
+    def taskOutputCaching = Mock(TaskOutputCachingState)
+    def taskState = Mock(TaskStateInternal)
+    def taskContext = Mock(TaskExecutionContext)
+    def taskArtifactState = Mock(TaskArtifactState)
+    def buildCacheController = Mock(BuildCacheController)
+    def cacheKey = Mock(TaskOutputCachingBuildCacheKey)
+
+    def executer = new CheckRemoteCacheEntryExecuter(buildCacheController, delegate)
+
+    def "checks remote cache before executing task and discards the result afterwards"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * taskContext.getBuildCacheKey() >> cacheKey
+        1 * taskState.getTaskOutputCaching() >> taskOutputCaching
+        1 * taskOutputCaching.isEnabled() >> true
+        1 * cacheKey.isValid() >> true
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.isAllowedToUseCachedResults() >> true
+
+        then:
+        1 * buildCacheController.checkRemoteExists(cacheKey)
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+
+        then:
+        1 * buildCacheController.discardRemoteExistenceCheck(cacheKey)
+        0 * _
+    }
+
+    def "discards remote cache check when task fails"() {
+        def failure = new RuntimeException("failure")
+
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * taskContext.getBuildCacheKey() >> cacheKey
+        1 * taskState.getTaskOutputCaching() >> taskOutputCaching
+        1 * taskOutputCaching.isEnabled() >> true
+        1 * cacheKey.isValid() >> true
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.isAllowedToUseCachedResults() >> true
+        1 * buildCacheController.checkRemoteExists(cacheKey)
+        1 * delegate.execute(task, taskState, taskContext) >> { throw failure }
+
+        then:
+        1 * buildCacheController.discardRemoteExistenceCheck(cacheKey)
+        0 * _
+
+        and:
+        def ex = thrown RuntimeException
+        ex.is(failure)
+    }
+
+    def "does not check remote cache when caching is disabled"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * taskContext.getBuildCacheKey() >> cacheKey
+        1 * taskState.getTaskOutputCaching() >> taskOutputCaching
+        1 * taskOutputCaching.isEnabled() >> false
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        0 * _
+    }
+
+    def "does not check remote cache when cache key is invalid"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * taskContext.getBuildCacheKey() >> cacheKey
+        1 * taskState.getTaskOutputCaching() >> taskOutputCaching
+        1 * taskOutputCaching.isEnabled() >> true
+        1 * cacheKey.isValid() >> false
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        0 * _
+    }
+}
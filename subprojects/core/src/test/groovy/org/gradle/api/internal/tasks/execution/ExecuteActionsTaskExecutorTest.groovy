@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.execution
 import org.gradle.api.execution.TaskActionListener
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.tasks.ContextAwareTaskAction
 import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata
@@ -48,6 +49,8 @@ class ExecuteActionsTaskExecutorTest extends Specification {
     def state = new TaskStateInternal()
     def taskArtifactState = Mock(TaskArtifactState)
     def executionContext = Mock(TaskExecutionContext)
+    def taskProperties = Stub(TaskProperties)
+    def outputFiles = new SimpleFileCollection()
     def scriptSource = Mock(ScriptSource)
     def standardOutputCapture = Mock(StandardOutputCapture)
     def publicListener = Mock(TaskActionListener)
@@ -67,6 +70,10 @@ class ExecuteActionsTaskExecutorTest extends Specification {
         project.getBuildScriptSource() >> scriptSource
         task.getStandardOutputCapture() >> standardOutputCapture
         executionContext.taskArtifactState >> taskArtifactState
+        executionContext.taskProperties >> taskProperties
+        taskProperties.outputFiles >> { outputFiles }
+        taskProperties.localStateFiles >> new SimpleFileCollection()
+        taskProperties.destroyableFiles >> new SimpleFileCollection()
     }
 
     void noMoreInteractions() {
@@ -160,6 +167,32 @@ class ExecuteActionsTaskExecutorTest extends Specification {
         state.actionable
     }
 
+    def onlyInvalidatesDeclaredOutputsBeforeExecutingActions() {
+        def outputFile = new File("output").absoluteFile
+        outputFiles = new SimpleFileCollection(outputFile)
+
+        given:
+        task.getTaskActions() >> [action1]
+        task.hasTaskActions() >> true
+
+        when:
+        executer.execute(task, state, executionContext)
+
+        then:
+        1 * publicListener.beforeActions(task)
+        then:
+        1 * internalListener.beforeTaskOutputChanged({ it as List == [outputFile] })
+        0 * internalListener.beforeTaskOutputChanged()
+        then:
+        1 * buildOperationExecutor.run(_ as RunnableBuildOperation) >> { args -> args[0].run(Stub(BuildOperationContext)) }
+        then:
+        1 * taskArtifactState.snapshotAfterTaskExecution(null, buildInvocationId, executionContext)
+        then:
+        1 * publicListener.afterActions(task)
+
+        state.outcome == TaskExecutionOutcome.EXECUTED
+    }
+
     def executeDoesOperateOnNewActionListInstance() {
         given:
         interaction {
@@ -24,6 +24,7 @@ import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.TaskInputsInternal
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.tasks.TaskDestroyablesInternal
 import org.gradle.api.internal.tasks.TaskLocalStateInternal
@@ -754,6 +755,35 @@ class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         e == failure
     }
 
+    def "selects a task waiting for an incomplete dependency once the dependency completes"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", dependsOn: [a])
+        Task c = task("c")
+        Task d = task("d", dependsOn: [b])
+        addToGraphAndPopulate([b, c, d])
+
+        when:
+        def first = startNextTask()
+        def second = startNextTask()
+        def none = startNextTask()
+
+        then:
+        first.task == a
+        second.task == c
+        none == null
+
+        when:
+        executionPlan.taskComplete(first)
+        def third = startNextTask()
+        executionPlan.taskComplete(second)
+        executionPlan.taskComplete(third)
+
+        then:
+        third.task == b
+        executedTasks == [d]
+    }
+
     def "clear removes all tasks"() {
         given:
         _ * coordinationService.withStateLock(_) >> { args ->
@@ -872,6 +902,72 @@ class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         filtered(b)
     }
 
+    def "starts tasks with the longest critical path first"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task x = task("x", dependsOn: [a])
+        Task d = task("d", dependsOn: [b, a, x])
+
+        when:
+        addToGraphAndPopulate([d])
+        executionPlan.orderByCriticalPath(previousDurations(":a": 10, ":b": 100, ":x": 1000))
+
+        then:
+        executedTasks == [a, x, b, d]
+    }
+
+    def "starts independent tasks in order of their previous duration"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c")
+        Task d = task("d", dependsOn: [a, b, c])
+
+        when:
+        addToGraphAndPopulate([d])
+        executionPlan.orderByCriticalPath(previousDurations(":a": 10, ":b": 1000))
+
+        then:
+        executedTasks == [b, c, a, d]
+    }
+
+    def "keeps order of requested tasks when ordering by critical path"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+
+        when:
+        executionPlan.addToTaskGraph([c])
+        executionPlan.addToTaskGraph([a])
+        executionPlan.determineExecutionPlan()
+        executionPlan.orderByCriticalPath(previousDurations(":a": 1000, ":b": 10, ":c": 10))
+
+        then:
+        executedTasks == [b, c, a]
+    }
+
+    def "does not reorder tasks when no previous durations are known"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b, a])
+
+        when:
+        addToGraphAndPopulate([c])
+        executionPlan.orderByCriticalPath(previousDurations([:]))
+
+        then:
+        executedTasks == [a, b, c]
+    }
+
+    private TaskDurationRepository previousDurations(Map<String, Long> durations) {
+        Stub(TaskDurationRepository) {
+            getPreviousDuration(_) >> { String path -> durations[path] as Long }
+        }
+    }
+
     private void addToGraphAndPopulate(List tasks) {
         executionPlan.addToTaskGraph(tasks)
         executionPlan.determineExecutionPlan()
@@ -907,6 +1003,17 @@ class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         return tasks
     }
 
+    private TaskInfo startNextTask() {
+        TaskInfo started = null
+        executionPlan.executeWithTask(workerLease, new Action<TaskInfo>() {
+            @Override
+            void execute(TaskInfo taskInfo) {
+                started = taskInfo
+            }
+        })
+        return started
+    }
+
     private TaskDependency taskDependencyResolvingTo(TaskInternal task, List<Task> tasks) {
         Mock(TaskDependency) {
             getDependencies(task) >> tasks
@@ -26,8 +26,10 @@ import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.TaskInputsInternal
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
 import org.gradle.api.internal.tasks.TaskDestroyablesInternal
 import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.TaskLocalStateInternal
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.specs.Spec
@@ -58,7 +60,7 @@ class DefaultTaskGraphExecuterSpec extends Specification {
     def parallelismConfigurationManager = new ParallelismConfigurationManagerFixture(parallelismConfiguration)
     def workerLeases = new DefaultWorkerLeaseService(coordinationService, parallelismConfigurationManager)
     def executorFactory = Mock(ExecutorFactory)
-    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(parallelismConfiguration, executorFactory, workerLeases), Factories.constant(executer), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
+    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(parallelismConfiguration, executorFactory, workerLeases), Factories.constant(executer), Factories.constant(Stub(TaskDurationRepository)), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
     WorkerLeaseRegistry.WorkerLeaseCompletion parentWorkerLease
     def executedTasks = []
 
@@ -358,7 +360,7 @@ class DefaultTaskGraphExecuterSpec extends Specification {
 
     def "notifies graph listener before execute"() {
         def taskPlanExecutor = Mock(TaskPlanExecutor)
-        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, Factories.constant(executer), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
+        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, Factories.constant(executer), Factories.constant(Stub(TaskDurationRepository)), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
         TaskExecutionGraphListener listener = Mock(TaskExecutionGraphListener)
         Task a = task("a")
 
@@ -376,7 +378,7 @@ class DefaultTaskGraphExecuterSpec extends Specification {
 
     def "executes whenReady listener before execute"() {
         def taskPlanExecutor = Mock(TaskPlanExecutor)
-        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, Factories.constant(executer), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
+        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, Factories.constant(executer), Factories.constant(Stub(TaskDurationRepository)), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
         def closure = Mock(Closure)
         def action = Mock(Action)
         Task a = task("a")
@@ -395,6 +397,23 @@ class DefaultTaskGraphExecuterSpec extends Specification {
         1 * taskPlanExecutor.process(_, _)
     }
 
+    def "records duration only for tasks that did work"() {
+        def taskDurations = Mock(TaskDurationRepository)
+        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(parallelismConfiguration, executorFactory, workerLeases), Factories.constant(executer), Factories.constant(taskDurations), cancellationToken, buildOperationExecutor, workerLeases, coordinationService, Mock(GradleInternal))
+        def executed = taskWithState("executed", TaskExecutionOutcome.EXECUTED, true)
+        def upToDate = taskWithState("upToDate", TaskExecutionOutcome.UP_TO_DATE, false)
+        def fromCache = taskWithState("fromCache", TaskExecutionOutcome.FROM_CACHE, false)
+        def noWork = taskWithState("noWork", TaskExecutionOutcome.EXECUTED, false)
+
+        when:
+        taskExecuter.addTasks([executed, upToDate, fromCache, noWork])
+        taskExecuter.execute()
+
+        then:
+        1 * taskDurations.recordDuration(":executed", _)
+        0 * taskDurations.recordDuration(_, _)
+    }
+
     def "stops execution on first failure when no failure handler provided"() {
         final RuntimeException failure = new RuntimeException()
         final Task a = brokenTask("a", failure)
@@ -551,14 +570,14 @@ class DefaultTaskGraphExecuterSpec extends Specification {
         executedTasks == [a, c]
     }
 
-    def newTask(String name) {
+    def newTask(String name, TaskStateInternal state = null) {
         def mock = Mock(TaskInternal)
         _ * mock.name >> name
         _ * mock.identityPath >> project.identityPath.child(name)
         _ * mock.project >> project
-        _ * mock.state >> Stub(TaskStateInternal) {
+        _ * mock.state >> (state ?: Stub(TaskStateInternal) {
             getFailure() >> null
-        }
+        })
         _ * mock.finalizedBy >> Stub(TaskDependency)
         _ * mock.mustRunAfter >> Stub(TaskDependency)
         _ * mock.shouldRunAfter >> Stub(TaskDependency)
@@ -571,6 +590,15 @@ class DefaultTaskGraphExecuterSpec extends Specification {
         return mock
     }
 
+    def taskWithState(String name, TaskExecutionOutcome outcome, boolean didWork) {
+        def state = new TaskStateInternal()
+        state.setOutcome(outcome)
+        state.setDidWork(didWork)
+        def mock = newTask(name, state)
+        addDependencies(mock)
+        return mock
+    }
+
     def task(String name, Task... dependsOn=[]) {
         def mock = newTask(name)
         addDependencies(mock, dependsOn)
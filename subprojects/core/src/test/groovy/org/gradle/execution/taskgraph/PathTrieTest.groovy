@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PathTrieTest extends Specification {
+    def trie = new PathTrie('/' as char)
+
+    def "finds no overlap in empty trie"() {
+        expect:
+        trie.findOverlap("/some/path") == null
+    }
+
+    @Unroll
+    def "finds overlap of #path with #added"() {
+        given:
+        added.each { trie.add(it) }
+
+        expect:
+        trie.findOverlap(path) == overlap
+
+        where:
+        added                          | path             | overlap
+        ["/a/b"]                       | "/a/b"           | "/a/b"
+        ["/a/b"]                       | "/a/b/c"         | "/a/b"
+        ["/a/b/c"]                     | "/a/b"           | "/a/b"
+        ["/a/b/c", "/a/d"]             | "/a/d/e"         | "/a/d"
+        ["/a/b"]                       | "/a/bc"          | null
+        ["/a/bc"]                      | "/a/b"           | null
+        ["/a/b"]                       | "/a"             | "/a"
+        ["/a/b"]                       | "/c"             | null
+        ["/"]                          | "/a"             | "/"
+        ["/"]                          | "/"              | "/"
+        ["/a/b"]                       | "/"              | "/"
+        ["/a/b/"]                      | "/a/b/c"         | "/a/b/"
+        ["/a/b"]                       | "/a/b/"          | "/a/b"
+        ["/a//b"]                      | "/a/b/c"         | "/a//b"
+        ["/a/b/c"]                     | "/a//b"          | "/a//b"
+        ["/a/b", "/a/b"]               | "/a/b/c"         | "/a/b"
+    }
+
+    def "removes paths"() {
+        given:
+        trie.add("/a/b")
+        trie.add("/a/b")
+        trie.add("/a/b/c")
+        trie.add("/a/d")
+
+        when:
+        trie.remove("/a/b")
+
+        then:
+        trie.findOverlap("/a/b/e") == "/a/b"
+
+        when:
+        trie.remove("/a/b")
+
+        then:
+        trie.findOverlap("/a/b/e") == null
+        trie.findOverlap("/a/b") == "/a/b"
+        trie.findOverlap("/a/b/c") == "/a/b/c"
+
+        when:
+        trie.remove("/a/b/c")
+
+        then:
+        trie.findOverlap("/a/b") == null
+        trie.findOverlap("/a") == "/a"
+
+        when:
+        trie.remove("/a/d")
+
+        then:
+        trie.findOverlap("/a") == null
+    }
+
+    def "removes root path"() {
+        given:
+        trie.add("/")
+        trie.add("/a/b")
+
+        when:
+        trie.remove("/")
+
+        then:
+        trie.findOverlap("/c") == null
+        trie.findOverlap("/a/b/c") == "/a/b"
+    }
+
+    def "removes path added with trailing separator"() {
+        given:
+        trie.add("/a/b/")
+
+        when:
+        trie.remove("/a/b/")
+
+        then:
+        trie.findOverlap("/a/b") == null
+    }
+
+    def "can be cleared"() {
+        given:
+        trie.add("/")
+        trie.add("/a/b")
+
+        when:
+        trie.clear()
+
+        then:
+        trie.findOverlap("/a/b") == null
+    }
+}
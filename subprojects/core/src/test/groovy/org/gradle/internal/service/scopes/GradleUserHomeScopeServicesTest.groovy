@@ -44,6 +44,7 @@ import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.concurrent.ParallelismConfigurationManager
 import org.gradle.internal.event.ListenerManager
 import org.gradle.internal.hash.ContentHasherFactory
+import org.gradle.internal.hash.DefaultContentHasherFactory
 import org.gradle.internal.hash.FileHasher
 import org.gradle.internal.hash.StreamHasher
 import org.gradle.internal.jvm.inspection.JvmVersionDetector
@@ -117,6 +118,10 @@ class GradleUserHomeScopeServicesTest extends Specification {
         expectParentServiceLocated(ClassLoaderRegistry)
         expectParentServiceLocated(DirectoryFileTreeFactory)
         expectParentServiceLocated(ContentHasherFactory)
+        expectParentServiceLocated(DefaultContentHasherFactory) {
+            _ * it.cacheNameFor(_) >> { String baseName -> baseName }
+            _ * it.getHashFunctionName() >> "MD5"
+        }
         expectParentServiceLocated(StreamHasher)
 
         expect:
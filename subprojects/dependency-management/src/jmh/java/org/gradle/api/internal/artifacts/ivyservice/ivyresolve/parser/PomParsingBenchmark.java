@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a corpus of real world POMs, either into a DOM as {@link PomReader} used to do, or using {@link PomStaxParser}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class PomParsingBenchmark {
+    private static final String[] CORPUS = {"commons-lang-2.6.pom", "gson-2.7.pom", "guava-jdk5-17.0.pom", "httpclient-4.5.5.pom", "junit-4.12.pom"};
+
+    List<byte[]> poms;
+    DocumentBuilderFactory documentBuilderFactory;
+    EntityResolver entityResolver;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        poms = new ArrayList<byte[]>();
+        for (String name : CORPUS) {
+            InputStream inputStream = getClass().getResourceAsStream(name);
+            try {
+                poms.add(IOUtils.toByteArray(inputStream));
+            } finally {
+                inputStream.close();
+            }
+        }
+        final byte[] entities = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        entityResolver = new EntityResolver() {
+            public InputSource resolveEntity(String publicId, String systemId) {
+                if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(new ByteArrayInputStream(entities));
+                }
+                return null;
+            }
+        };
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setValidating(false);
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) throws Exception {
+        for (byte[] pom : poms) {
+            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            documentBuilder.setEntityResolver(entityResolver);
+            Document document = documentBuilder.parse(new PomStaxParser.AddDTDFilterInputStream(new ByteArrayInputStream(pom)), "pom.xml");
+            blackhole.consume(document.getDocumentElement());
+        }
+    }
+
+    @Benchmark
+    public void stax(Blackhole blackhole) throws Exception {
+        for (byte[] pom : poms) {
+            blackhole.consume(PomStaxParser.parse(new ByteArrayInputStream(pom), "pom.xml"));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Propagates the exclude rules of a synthetic graph of 5000 modules, many of whose dependencies declare excludes, in the same way as the dependency graph builder does:
+ * the exclusions along a path are intersected and the exclusions of the paths to a module are merged into a union.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ModuleExclusionsBenchmark {
+    private static final int MODULE_COUNT = 5000;
+    private static final int GROUP_COUNT = 100;
+    private static final int DEPENDENCIES_PER_MODULE = 4;
+
+    ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    ModuleIdentifier[] modules;
+    int[][] dependencies;
+    List<List<ImmutableList<ExcludeMetadata>>> excludes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+        modules = new ModuleIdentifier[MODULE_COUNT];
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            modules[i] = moduleIdentifierFactory.module("org.group" + random.nextInt(GROUP_COUNT), "module" + i);
+        }
+        // Modules only depend on modules with a higher index, which makes the graph acyclic and the natural order a topological order
+        dependencies = new int[MODULE_COUNT][];
+        excludes = new ArrayList<List<ImmutableList<ExcludeMetadata>>>(MODULE_COUNT);
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            int count = i < MODULE_COUNT - DEPENDENCIES_PER_MODULE ? DEPENDENCIES_PER_MODULE : MODULE_COUNT - 1 - i;
+            dependencies[i] = new int[count];
+            List<ImmutableList<ExcludeMetadata>> dependencyExcludes = new ArrayList<ImmutableList<ExcludeMetadata>>(count);
+            for (int j = 0; j < count; j++) {
+                dependencies[i][j] = i + 1 + random.nextInt(Math.min(200, MODULE_COUNT - 1 - i));
+                dependencyExcludes.add(randomExcludes(random));
+            }
+            excludes.add(dependencyExcludes);
+        }
+    }
+
+    private ImmutableList<ExcludeMetadata> randomExcludes(Random random) {
+        ImmutableList.Builder<ExcludeMetadata> builder = ImmutableList.builder();
+        if (random.nextInt(10) < 4) {
+            int count = 1 + random.nextInt(40);
+            for (int i = 0; i < count; i++) {
+                builder.add(new DefaultExclude(modules[random.nextInt(MODULE_COUNT)]));
+            }
+        }
+        if (random.nextInt(20) == 0) {
+            builder.add(new DefaultExclude(moduleIdentifierFactory.module("org.group" + random.nextInt(GROUP_COUNT), "*")));
+        }
+        if (random.nextInt(50) == 0) {
+            builder.add(new DefaultExclude(moduleIdentifierFactory.module("*", "*"), new DefaultIvyArtifactName("*", "*", "*", "sources"), new String[0], null));
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public int resolveGraph() {
+        ModuleExclusions moduleExclusions = new ModuleExclusions(moduleIdentifierFactory);
+        ModuleExclusion[] exclusions = new ModuleExclusion[MODULE_COUNT];
+        exclusions[0] = ModuleExclusions.excludeNone();
+        int included = 0;
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            ModuleExclusion exclusion = exclusions[i];
+            if (exclusion == null) {
+                continue;
+            }
+            included++;
+            for (int j = 0; j < dependencies[i].length; j++) {
+                int target = dependencies[i][j];
+                if (exclusion.excludeModule(modules[target])) {
+                    continue;
+                }
+                ModuleExclusion edgeExclusion = moduleExclusions.intersect(exclusion, moduleExclusions.excludeAny(excludes.get(i).get(j)));
+                ModuleExclusion current = exclusions[target];
+                exclusions[target] = current == null ? edgeExclusion : moduleExclusions.union(current, edgeExclusion);
+            }
+        }
+        return included;
+    }
+}
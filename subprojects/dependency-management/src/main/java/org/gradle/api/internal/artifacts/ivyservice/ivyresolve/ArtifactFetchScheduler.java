@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.result.BuildableArtifactResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableArtifactResolveResult;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Schedules the downloads of artifacts from remote repositories for the whole build.
+ *
+ * <p>When an artifact is requested while it is already being downloaded from the same repository, for example because several projects resolve
+ * configurations containing the artifact in parallel, the request waits for the download in progress and receives its result instead of starting another one.
+ * The number of artifacts downloaded from a single repository at the same time is limited by the {@value #MAX_CONCURRENT_DOWNLOADS_PROPERTY} system property,
+ * where a value of 0 or less removes the limit.</p>
+ */
+public class ArtifactFetchScheduler {
+    public static final String MAX_CONCURRENT_DOWNLOADS_PROPERTY = "org.gradle.internal.dependency-download.max-per-repository";
+    private static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 8;
+
+    private final int maxConcurrentDownloads;
+    private final Map<FetchKey, InFlightFetch> inFlight = Maps.newHashMap();
+    private final ConcurrentMap<String, Semaphore> permitsPerRepository = Maps.newConcurrentMap();
+
+    public ArtifactFetchScheduler() {
+        this(Integer.getInteger(MAX_CONCURRENT_DOWNLOADS_PROPERTY, DEFAULT_MAX_CONCURRENT_DOWNLOADS));
+    }
+
+    ArtifactFetchScheduler(int maxConcurrentDownloads) {
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    /**
+     * Returns a repository that downloads artifacts through this scheduler.
+     */
+    public ModuleComponentRepository scheduleDownloads(ModuleComponentRepository repository) {
+        return new BaseModuleComponentRepository(repository, repository.getLocalAccess(), new SchedulingRepositoryAccess(repository.getId(), repository.getRemoteAccess()));
+    }
+
+    void fetch(String repositoryId, ModuleComponentRepositoryAccess remoteAccess, ComponentArtifactMetadata artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        FetchKey key = new FetchKey(repositoryId, artifact.getId());
+        InFlightFetch fetch;
+        boolean download = false;
+        synchronized (inFlight) {
+            fetch = inFlight.get(key);
+            if (fetch == null) {
+                fetch = new InFlightFetch();
+                inFlight.put(key, fetch);
+                download = true;
+            }
+        }
+        if (download) {
+            try {
+                fetch.download(permitsFor(repositoryId), remoteAccess, artifact, moduleSource);
+            } finally {
+                synchronized (inFlight) {
+                    inFlight.remove(key);
+                }
+            }
+        }
+        fetch.applyTo(result);
+    }
+
+    private Semaphore permitsFor(String repositoryId) {
+        if (maxConcurrentDownloads <= 0) {
+            return null;
+        }
+        Semaphore permits = permitsPerRepository.get(repositoryId);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(maxConcurrentDownloads, true);
+            permits = permitsPerRepository.putIfAbsent(repositoryId, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    private static class InFlightFetch {
+        private final DefaultBuildableArtifactResolveResult result = new DefaultBuildableArtifactResolveResult();
+        private boolean complete;
+        private Throwable failure;
+
+        void download(Semaphore permits, ModuleComponentRepositoryAccess remoteAccess, ComponentArtifactMetadata artifact, ModuleSource moduleSource) {
+            Throwable downloadFailure = null;
+            try {
+                if (permits != null) {
+                    permits.acquireUninterruptibly();
+                }
+                try {
+                    remoteAccess.resolveArtifact(artifact, moduleSource, result);
+                } finally {
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
+            } catch (Throwable t) {
+                downloadFailure = t;
+            }
+            synchronized (this) {
+                failure = downloadFailure;
+                complete = true;
+                notifyAll();
+            }
+        }
+
+        void applyTo(BuildableArtifactResolveResult target) {
+            synchronized (this) {
+                while (!complete) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+            result.applyTo(target);
+            if (!result.hasResult()) {
+                return;
+            }
+            if (result.getFailure() != null) {
+                target.failed(result.getFailure());
+            } else {
+                target.resolved(result.getResult());
+            }
+        }
+    }
+
+    private static class FetchKey {
+        private final String repositoryId;
+        private final ComponentArtifactIdentifier artifactId;
+
+        FetchKey(String repositoryId, ComponentArtifactIdentifier artifactId) {
+            this.repositoryId = repositoryId;
+            this.artifactId = artifactId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FetchKey other = (FetchKey) o;
+            return repositoryId.equals(other.repositoryId) && artifactId.equals(other.artifactId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * repositoryId.hashCode() + artifactId.hashCode();
+        }
+    }
+
+    private class SchedulingRepositoryAccess extends BaseModuleComponentRepositoryAccess {
+        private final String repositoryId;
+
+        SchedulingRepositoryAccess(String repositoryId, ModuleComponentRepositoryAccess delegate) {
+            super(delegate);
+            this.repositoryId = repositoryId;
+        }
+
+        @Override
+        public void resolveArtifact(ComponentArtifactMetadata artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+            fetch(repositoryId, getDelegate(), artifact, moduleSource, result);
+        }
+    }
+}
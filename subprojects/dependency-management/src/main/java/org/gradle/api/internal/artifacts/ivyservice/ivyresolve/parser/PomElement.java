@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An element of a POM, as read by {@link PomStaxParser}. Holds the name of the element, the text directly contained in the element and its child elements.
+ */
+public final class PomElement {
+    private final String name;
+    private String text = "";
+    private StringBuilder textBuilder;
+    private List<PomElement> children = Collections.emptyList();
+
+    PomElement(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the text and CDATA content of this element, excluding the content of child elements.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public List<PomElement> getChildren() {
+        return children;
+    }
+
+    @Nullable
+    public PomElement getFirstChild(String name) {
+        for (PomElement child : children) {
+            if (name.equals(child.name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    void appendText(String text) {
+        if (textBuilder != null) {
+            textBuilder.append(text);
+        } else if (this.text.length() == 0) {
+            this.text = text;
+        } else {
+            textBuilder = new StringBuilder(this.text).append(text);
+        }
+    }
+
+    void endElement() {
+        if (textBuilder != null) {
+            text = textBuilder.toString();
+            textBuilder = null;
+        }
+    }
+
+    void addChild(PomElement child) {
+        if (children.isEmpty()) {
+            children = new ArrayList<PomElement>(4);
+        }
+        children.add(child);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
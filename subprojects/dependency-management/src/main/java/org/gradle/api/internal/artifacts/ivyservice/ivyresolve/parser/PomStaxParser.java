@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a POM into a tree of {@link PomElement}s using a streaming StAX parser.
+ *
+ * <p>Only the elements that are read by {@link PomReader} are kept. Other top level elements of the project and of its profiles, such as the build,
+ * reporting or developer information, are skipped while streaming through the document, so no objects are created for them.</p>
+ */
+public final class PomStaxParser {
+    private static final String PROFILE = "profile";
+    private static final Set<String> PROJECT_ELEMENTS = ImmutableSet.of("groupId", "artifactId", "version", "packaging", "parent", "dependencies", "dependencyManagement", "distributionManagement", "properties", "profiles");
+    private static final Set<String> PROFILE_ELEMENTS = ImmutableSet.of("id", "activation", "properties", "dependencies", "dependencyManagement");
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+
+    private static final XMLResolver M2_ENTITY_RESOLVER = new XMLResolver() {
+        public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new ByteArrayInputStream(M2_ENTITIES_RESOURCE);
+            }
+            return null;
+        }
+    };
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
+
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the StAX classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            XML_INPUT_FACTORY.setXMLResolver(M2_ENTITY_RESOLVER);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomStaxParser() {}
+
+    /**
+     * Parses the given POM and returns its root element.
+     */
+    public static PomElement parse(InputStream inputStream, String systemId) throws IOException, XMLStreamException {
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(inputStream));
+            try {
+                return readDocument(reader);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private static PomElement readDocument(XMLStreamReader reader) throws XMLStreamException {
+        PomElement root = null;
+        Deque<PomElement> openElements = new ArrayDeque<PomElement>();
+        int skippedDepth = 0;
+        // Read up to the end of the document, so that malformed content after the root element is reported
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (skippedDepth > 0) {
+                        skippedDepth++;
+                        break;
+                    }
+                    String name = elementName(reader);
+                    PomElement parent = openElements.peek();
+                    if (parent == null) {
+                        root = new PomElement(name);
+                        openElements.push(root);
+                    } else if (isRead(parent, openElements.size(), name)) {
+                        PomElement element = new PomElement(name);
+                        parent.addChild(element);
+                        openElements.push(element);
+                    } else {
+                        skippedDepth = 1;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (skippedDepth > 0) {
+                        skippedDepth--;
+                    } else {
+                        openElements.pop().endElement();
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (skippedDepth == 0 && !openElements.isEmpty()) {
+                        openElements.peek().appendText(reader.getText());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return root;
+    }
+
+    private static String elementName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        return prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName;
+    }
+
+    private static boolean isRead(PomElement parent, int depth, String name) {
+        if (depth == 1) {
+            return PROJECT_ELEMENTS.contains(name);
+        }
+        if (depth == 3 && PROFILE.equals(parent.getName())) {
+            return PROFILE_ELEMENTS.contains(name);
+        }
+        return true;
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.getText();
+    }
+
+    @Nullable
+    public static String getFirstChildText(@Nullable PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return node.getText();
+        } else {
+            return null;
+        }
+    }
+
+    @Nullable
+    public static PomElement getFirstChildElement(@Nullable PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        return parentElem.getFirstChild(name);
+    }
+
+    public static List<PomElement> getAllChilds(@Nullable PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+
+    public static final class AddDTDFilterInputStream extends FilterInputStream {
+        private static final int MARK = 10000;
+        private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
+
+        private int count;
+        private byte[] prefix = DOCTYPE.getBytes();
+
+        public AddDTDFilterInputStream(InputStream in) throws IOException {
+            super(new BufferedInputStream(in));
+
+            this.in.mark(MARK);
+
+            // TODO: we should really find a better solution for this...
+            // maybe we could use a FilterReader instead of a FilterInputStream?
+            int byte1 = this.in.read();
+            int byte2 = this.in.read();
+            int byte3 = this.in.read();
+
+            if (byte1 == 239 && byte2 == 187 && byte3 == 191) {
+                // skip the UTF-8 BOM
+                this.in.mark(MARK);
+            } else {
+                this.in.reset();
+            }
+
+            int bytesToSkip = 0;
+            LineNumberReader reader = new LineNumberReader(new InputStreamReader(this.in, "UTF-8"), 100);
+            String firstLine = reader.readLine();
+            if (firstLine != null) {
+                String trimmed = firstLine.trim();
+                if (trimmed.startsWith("<?xml ")) {
+                    int endIndex = trimmed.indexOf("?>");
+                    String xmlDecl = trimmed.substring(0, endIndex + 2);
+                    prefix = (xmlDecl + "\n" + DOCTYPE).getBytes();
+                    bytesToSkip = xmlDecl.getBytes().length;
+                }
+            }
+
+            this.in.reset();
+            for (int i = 0; i < bytesToSkip; i++) {
+                this.in.read();
+            }
+        }
+
+        public int read() throws IOException {
+            if (count < prefix.length) {
+                return prefix[count++];
+            }
+
+            return super.read();
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                throw new NullPointerException();
+            } else if ((off < 0) || (off > b.length) || (len < 0)
+                    || ((off + len) > b.length) || ((off + len) < 0)) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+
+            int nbrBytesCopied = 0;
+
+            if (count < prefix.length) {
+                int nbrBytesFromPrefix = Math.min(prefix.length - count, len);
+                System.arraycopy(prefix, count, b, off, nbrBytesFromPrefix);
+                nbrBytesCopied = nbrBytesFromPrefix;
+            }
+
+            if (nbrBytesCopied < len) {
+                nbrBytesCopied += in.read(b, off + nbrBytesCopied, len - nbrBytesCopied);
+            }
+
+            count += nbrBytesCopied;
+            return nbrBytesCopied;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLayout;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.MetaDataParser;
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/**
+ * A read-only, content addressed directory of module metadata, which maps the SHA-1 of a POM or Ivy descriptor to the metadata parsed from it.
+ * When a descriptor is found in the snapshot, it is not parsed again. This allows CI images to ship pre-parsed metadata for the dependencies of a build,
+ * so that the first build on a new machine does not need to parse any descriptor, nor fetch the parent POMs or imported BOMs of the descriptors it finds.
+ *
+ * <p>The snapshot is only used when the {@value #SNAPSHOT_DIR_PROPERTY} system property is set. When {@value #RECORD_PROPERTY} is set as well, descriptors
+ * which are not found in the snapshot are added to it after they have been parsed, which is how a snapshot is created.</p>
+ *
+ * <p>The result of parsing a POM also depends on its parent POMs and imported BOMs. These are expected to not change for a given descriptor, which holds
+ * for released modules.</p>
+ */
+public class ModuleMetadataSnapshotStore {
+    public static final String SNAPSHOT_DIR_PROPERTY = "org.gradle.internal.dependency-metadata.snapshot-dir";
+    public static final String RECORD_PROPERTY = "org.gradle.internal.dependency-metadata.snapshot-record";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleMetadataSnapshotStore.class);
+
+    private final File baseDir;
+    private final boolean record;
+    private final ModuleMetadataSerializer moduleMetadataSerializer;
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+
+    public ModuleMetadataSnapshotStore(@Nullable File snapshotDir, boolean record, ModuleMetadataSerializer moduleMetadataSerializer, ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
+        // The serialized format changes together with the layout of the metadata cache
+        this.baseDir = snapshotDir == null ? null : CacheLayout.META_DATA.getPath(snapshotDir);
+        this.record = record;
+        this.moduleMetadataSerializer = moduleMetadataSerializer;
+        this.moduleIdentifierFactory = moduleIdentifierFactory;
+    }
+
+    /**
+     * Returns a parser that looks up descriptors in this snapshot before using the given parser, or the given parser when no snapshot is used.
+     */
+    public <T extends MutableModuleComponentResolveMetadata> MetaDataParser<T> decorate(MetaDataParser<T> parser, Class<T> metadataType) {
+        if (baseDir == null) {
+            return parser;
+        }
+        return new SnapshotBackedMetaDataParser<T>(parser, this, metadataType);
+    }
+
+    /**
+     * Returns the metadata for the descriptor with the given SHA-1, or null when the descriptor is not in this snapshot or could not be read.
+     */
+    @Nullable
+    public MutableModuleComponentResolveMetadata get(HashValue descriptorSha1) {
+        File file = getFile(descriptorSha1);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(file));
+            try {
+                return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            // The snapshot is only an optimization, so parse the descriptor instead
+            LOGGER.debug("Could not read module metadata from {}.", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the metadata parsed from the descriptor with the given SHA-1 to this snapshot, when recording.
+     */
+    public void put(HashValue descriptorSha1, MutableModuleComponentResolveMetadata metadata) {
+        if (!record) {
+            return;
+        }
+        File file = getFile(descriptorSha1);
+        File tmpFile = null;
+        try {
+            file.getParentFile().mkdirs();
+            tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(tmpFile));
+            try {
+                moduleMetadataSerializer.write(encoder, metadata.asImmutable());
+            } finally {
+                encoder.close();
+            }
+            // Entries are content addressed, so it does not matter which process adds an entry when several do at the same time
+            if (!tmpFile.renameTo(file) && !file.isFile()) {
+                LOGGER.debug("Could not add module metadata to {}.", file);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not add module metadata to {}.", file, e);
+        } finally {
+            if (tmpFile != null && tmpFile.exists()) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private File getFile(HashValue descriptorSha1) {
+        String hash = descriptorSha1.asZeroPaddedHexString(40);
+        return new File(new File(baseDir, hash.substring(0, 2)), hash + ".bin");
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.MetaDataParseException;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.MetaDataParser;
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+
+import java.io.File;
+
+/**
+ * A {@link MetaDataParser} that uses the metadata of a {@link ModuleMetadataSnapshotStore} for descriptors that are in the snapshot.
+ * Validating parses always use the delegate parser.
+ */
+class SnapshotBackedMetaDataParser<T extends MutableModuleComponentResolveMetadata> implements MetaDataParser<T> {
+    private final MetaDataParser<T> delegate;
+    private final ModuleMetadataSnapshotStore snapshotStore;
+    private final Class<T> metadataType;
+
+    SnapshotBackedMetaDataParser(MetaDataParser<T> delegate, ModuleMetadataSnapshotStore snapshotStore, Class<T> metadataType) {
+        this.delegate = delegate;
+        this.snapshotStore = snapshotStore;
+        this.metadataType = metadataType;
+    }
+
+    @Override
+    public T parseMetaData(DescriptorParseContext context, LocallyAvailableExternalResource resource) throws MetaDataParseException {
+        HashValue sha1 = HashUtil.sha1(resource.getFile());
+        T metadata = fromSnapshot(sha1);
+        if (metadata == null) {
+            metadata = delegate.parseMetaData(context, resource);
+            snapshotStore.put(sha1, metadata);
+        }
+        return metadata;
+    }
+
+    @Override
+    public T parseMetaData(DescriptorParseContext context, File descriptorFile) throws MetaDataParseException {
+        HashValue sha1 = HashUtil.sha1(descriptorFile);
+        T metadata = fromSnapshot(sha1);
+        if (metadata == null) {
+            metadata = delegate.parseMetaData(context, descriptorFile);
+            snapshotStore.put(sha1, metadata);
+        }
+        return metadata;
+    }
+
+    @Override
+    public T parseMetaData(DescriptorParseContext context, File descriptorFile, boolean validate) throws MetaDataParseException {
+        if (validate) {
+            return delegate.parseMetaData(context, descriptorFile, true);
+        }
+        return parseMetaData(context, descriptorFile);
+    }
+
+    private T fromSnapshot(HashValue sha1) {
+        MutableModuleComponentResolveMetadata metadata = snapshotStore.get(sha1);
+        return metadataType.isInstance(metadata) ? metadataType.cast(metadata) : null;
+    }
+}
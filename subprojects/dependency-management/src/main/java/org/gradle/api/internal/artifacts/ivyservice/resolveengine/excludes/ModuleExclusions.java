@@ -54,6 +54,8 @@ import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.exclude
 public class ModuleExclusions {
     private static final ExcludeNone EXCLUDE_NONE = new ExcludeNone();
     private static final ExcludeAllModulesSpec EXCLUDE_ALL_MODULES_SPEC = new ExcludeAllModulesSpec();
+    // Specs with fewer excludes than this are merged by comparing every pair of excludes
+    private static final int MIN_INDEXED_MERGE_SIZE = 16;
 
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
 
@@ -299,18 +301,19 @@ public class ModuleExclusions {
 
     private AbstractModuleExclusion mergeAndCacheResult(MergeOperation merge, AbstractModuleExclusion[] oneFilters, AbstractModuleExclusion[] otherFilters) {
         AbstractModuleExclusion exclusion; // Merge the exclude rules from both specs into a single union spec.
-        final BitSet remaining = new BitSet(otherFilters.length);
-        remaining.set(0, otherFilters.length, true);
-        MergeSet merged = new MergeSet(remaining, oneFilters.length + otherFilters.length);
-        for (AbstractModuleExclusion thisSpec : oneFilters) {
-            if (!remaining.isEmpty()) {
-                for (int i = remaining.nextSetBit(0); i >= 0; i = remaining.nextSetBit(i+1)) {
-                    AbstractModuleExclusion otherSpec = otherFilters[i];
-                    merged.current = otherSpec;
-                    merged.idx = i;
-                    mergeExcludeRules(thisSpec, otherSpec, merged);
+        MergeSet merged = new MergeSet(oneFilters.length + otherFilters.length);
+        if (otherFilters.length < MIN_INDEXED_MERGE_SIZE) {
+            BitSet remaining = new BitSet(otherFilters.length);
+            remaining.set(0, otherFilters.length, true);
+            merged.remaining = remaining;
+            for (AbstractModuleExclusion thisSpec : oneFilters) {
+                if (remaining.isEmpty()) {
+                    break;
                 }
+                mergeWithRemaining(thisSpec, otherFilters, merged);
             }
+        } else {
+            mergeIndexed(oneFilters, otherFilters, merged);
         }
         if (merged.isEmpty()) {
             exclusion = ModuleExclusions.EXCLUDE_NONE;
@@ -321,6 +324,54 @@ public class ModuleExclusions {
         return exclusion;
     }
 
+    /**
+     * Merges large specs. The module id excludes of the other spec are looked up by module id, so that a module id exclude is only checked against
+     * the module id exclude of the other spec for the same module, rather than against every module id exclude of the other spec.
+     */
+    private void mergeIndexed(AbstractModuleExclusion[] oneFilters, AbstractModuleExclusion[] otherFilters, MergeSet merged) {
+        Map<ModuleIdentifier, Integer> moduleIdPositions = Maps.newHashMapWithExpectedSize(otherFilters.length);
+        BitSet remainingModuleIds = new BitSet(otherFilters.length);
+        BitSet remainingOthers = new BitSet(otherFilters.length);
+        for (int i = 0; i < otherFilters.length; i++) {
+            AbstractModuleExclusion otherSpec = otherFilters[i];
+            if (otherSpec instanceof ModuleIdExcludeSpec && !moduleIdPositions.containsKey(((ModuleIdExcludeSpec) otherSpec).moduleId)) {
+                moduleIdPositions.put(((ModuleIdExcludeSpec) otherSpec).moduleId, i);
+                remainingModuleIds.set(i);
+            } else {
+                remainingOthers.set(i);
+            }
+        }
+        for (AbstractModuleExclusion thisSpec : oneFilters) {
+            if (remainingModuleIds.isEmpty() && remainingOthers.isEmpty()) {
+                break;
+            }
+            if (thisSpec instanceof ModuleIdExcludeSpec) {
+                // Excludes nothing unless the other spec excludes the same module id
+                Integer position = moduleIdPositions.get(((ModuleIdExcludeSpec) thisSpec).moduleId);
+                if (position != null && remainingModuleIds.get(position)) {
+                    merged.current = null;
+                    merged.add(thisSpec);
+                    remainingModuleIds.clear(position);
+                }
+            } else {
+                merged.remaining = remainingModuleIds;
+                mergeWithRemaining(thisSpec, otherFilters, merged);
+            }
+            merged.remaining = remainingOthers;
+            mergeWithRemaining(thisSpec, otherFilters, merged);
+        }
+    }
+
+    private void mergeWithRemaining(AbstractModuleExclusion thisSpec, AbstractModuleExclusion[] otherFilters, MergeSet merged) {
+        BitSet remaining = merged.remaining;
+        for (int i = remaining.nextSetBit(0); i >= 0; i = remaining.nextSetBit(i + 1)) {
+            AbstractModuleExclusion otherSpec = otherFilters[i];
+            merged.current = otherSpec;
+            merged.idx = i;
+            mergeExcludeRules(thisSpec, otherSpec, merged);
+        }
+    }
+
     private IntersectionExclusion asIntersection(ImmutableSet<AbstractModuleExclusion> excludes) {
         IntersectionExclusion cached = intersectionCache.get(excludes);
         if (cached == null) {
@@ -445,13 +496,12 @@ public class ModuleExclusions {
     }
 
     private static final class MergeSet extends HashSet<AbstractModuleExclusion> {
-        private final BitSet remaining;
+        private BitSet remaining;
         private int idx;
         private AbstractModuleExclusion current;
 
-        private MergeSet(BitSet remaining, int size) {
+        private MergeSet(int size) {
             super(size);
-            this.remaining = remaining;
         }
 
         @Override
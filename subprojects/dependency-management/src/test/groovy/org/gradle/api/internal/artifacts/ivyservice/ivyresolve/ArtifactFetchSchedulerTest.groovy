@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.internal.component.model.ComponentArtifactMetadata
+import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.resolve.ArtifactResolveException
+import org.gradle.internal.resolve.result.BuildableArtifactResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableArtifactResolveResult
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import static org.gradle.test.fixtures.ConcurrentTestUtil.poll
+
+class ArtifactFetchSchedulerTest extends ConcurrentSpec {
+    final localAccess = Mock(ModuleComponentRepositoryAccess)
+    final remoteAccess = Mock(ModuleComponentRepositoryAccess)
+    final moduleSource = Stub(ModuleSource)
+    final artifact1 = artifact("artifact1")
+    final artifact2 = artifact("artifact2")
+    final file = new File("artifact.jar")
+
+    def "uses local access and other operations of the repository"() {
+        def repository = new ArtifactFetchScheduler(2).scheduleDownloads(repository("repo"))
+        def result = new DefaultBuildableArtifactResolveResult()
+
+        expect:
+        repository.id == "repo"
+        repository.localAccess.is(localAccess)
+
+        when:
+        repository.remoteAccess.resolveArtifactsWithType(null, null, null)
+        repository.remoteAccess.resolveArtifact(artifact1, moduleSource, result)
+
+        then:
+        1 * remoteAccess.resolveArtifactsWithType(null, null, null)
+        1 * remoteAccess.resolveArtifact(artifact1, moduleSource, _) >> { ComponentArtifactMetadata a, ModuleSource s, BuildableArtifactResolveResult r ->
+            r.attempted("http://repo/artifact1.jar")
+            r.resolved(file)
+        }
+        0 * _
+
+        and:
+        result.result == file
+        result.attempted == ["http://repo/artifact1.jar"]
+    }
+
+    def "concurrent requests for the same artifact share a single download"() {
+        def downloads = new AtomicInteger()
+        Thread waiting = null
+        def repository = new ArtifactFetchScheduler(2).scheduleDownloads(repository("repo") { ComponentArtifactMetadata a, BuildableArtifactResolveResult r ->
+            downloads.incrementAndGet()
+            instant.downloading
+            poll { assert waiting?.state == Thread.State.WAITING }
+            r.resolved(file)
+        })
+        def result1 = new DefaultBuildableArtifactResolveResult()
+        def result2 = new DefaultBuildableArtifactResolveResult()
+
+        when:
+        async {
+            start {
+                repository.remoteAccess.resolveArtifact(artifact1, moduleSource, result1)
+            }
+            start {
+                thread.blockUntil.downloading
+                waiting = Thread.currentThread()
+                repository.remoteAccess.resolveArtifact(artifact1, moduleSource, result2)
+            }
+        }
+
+        then:
+        downloads.get() == 1
+        result1.result == file
+        result2.result == file
+    }
+
+    def "concurrent requests share a failed download"() {
+        def failure = new ArtifactResolveException("broken")
+        def downloads = new AtomicInteger()
+        Thread waiting = null
+        def repository = new ArtifactFetchScheduler(2).scheduleDownloads(repository("repo") { ComponentArtifactMetadata a, BuildableArtifactResolveResult r ->
+            downloads.incrementAndGet()
+            instant.downloading
+            poll { assert waiting?.state == Thread.State.WAITING }
+            r.failed(failure)
+        })
+        def result1 = new DefaultBuildableArtifactResolveResult()
+        def result2 = new DefaultBuildableArtifactResolveResult()
+
+        when:
+        async {
+            start {
+                repository.remoteAccess.resolveArtifact(artifact1, moduleSource, result1)
+            }
+            start {
+                thread.blockUntil.downloading
+                waiting = Thread.currentThread()
+                repository.remoteAccess.resolveArtifact(artifact1, moduleSource, result2)
+            }
+        }
+
+        then:
+        downloads.get() == 1
+        result1.failure.is(failure)
+        result2.failure.is(failure)
+    }
+
+    def "rethrows unexpected failure and downloads again on next request"() {
+        def repository = new ArtifactFetchScheduler(2).scheduleDownloads(repository("repo"))
+        def failure = new RuntimeException("broken")
+        def result = new DefaultBuildableArtifactResolveResult()
+
+        when:
+        repository.remoteAccess.resolveArtifact(artifact1, moduleSource, new DefaultBuildableArtifactResolveResult())
+
+        then:
+        1 * remoteAccess.resolveArtifact(artifact1, moduleSource, _) >> { throw failure }
+        def e = thrown(RuntimeException)
+        e.is(failure)
+
+        when:
+        repository.remoteAccess.resolveArtifact(artifact1, moduleSource, result)
+
+        then:
+        1 * remoteAccess.resolveArtifact(artifact1, moduleSource, _) >> { ComponentArtifactMetadata a, ModuleSource s, BuildableArtifactResolveResult r ->
+            r.resolved(file)
+        }
+        result.result == file
+    }
+
+    def "limits the number of concurrent downloads from a repository"() {
+        Thread waiting = null
+        def repository = new ArtifactFetchScheduler(1).scheduleDownloads(repository("repo") { ComponentArtifactMetadata a, BuildableArtifactResolveResult r ->
+            if (a.is(artifact1)) {
+                instant.artifact1Started
+                poll { assert waiting?.state == Thread.State.WAITING }
+                instant.artifact1Finished
+            } else {
+                instant.artifact2Started
+            }
+        })
+
+        when:
+        async {
+            start {
+                repository.remoteAccess.resolveArtifact(artifact1, moduleSource, new DefaultBuildableArtifactResolveResult())
+            }
+            start {
+                thread.blockUntil.artifact1Started
+                waiting = Thread.currentThread()
+                repository.remoteAccess.resolveArtifact(artifact2, moduleSource, new DefaultBuildableArtifactResolveResult())
+            }
+        }
+
+        then:
+        instant.artifact2Started > instant.artifact1Finished
+    }
+
+    def "downloads from different repositories are neither shared nor limited together"() {
+        def scheduler = new ArtifactFetchScheduler(1)
+        def repository1 = scheduler.scheduleDownloads(repository("repo1") { ComponentArtifactMetadata a, BuildableArtifactResolveResult r ->
+            instant.repo1Started
+            thread.blockUntil.repo2Started
+        })
+        def repository2 = scheduler.scheduleDownloads(repository("repo2") { ComponentArtifactMetadata a, BuildableArtifactResolveResult r ->
+            instant.repo2Started
+            thread.blockUntil.repo1Started
+        })
+
+        when:
+        async {
+            start {
+                repository1.remoteAccess.resolveArtifact(artifact1, moduleSource, new DefaultBuildableArtifactResolveResult())
+            }
+            start {
+                repository2.remoteAccess.resolveArtifact(artifact1, moduleSource, new DefaultBuildableArtifactResolveResult())
+            }
+        }
+
+        then:
+        noExceptionThrown()
+    }
+
+    private ModuleComponentRepository repository(String id) {
+        return Stub(ModuleComponentRepository) {
+            getId() >> id
+            getLocalAccess() >> localAccess
+            getRemoteAccess() >> remoteAccess
+        }
+    }
+
+    /**
+     * Uses a hand written repository access, as calls to mocks are serialized.
+     */
+    private ModuleComponentRepository repository(String id, Closure download) {
+        def remote = [resolveArtifact: { ComponentArtifactMetadata a, ModuleSource s, BuildableArtifactResolveResult r -> download.call(a, r) }] as ModuleComponentRepositoryAccess
+        return new BaseModuleComponentRepository(repository(id), localAccess, remote)
+    }
+
+    private ComponentArtifactMetadata artifact(String name) {
+        def id = Stub(ComponentArtifactIdentifier) {
+            getDisplayName() >> name
+        }
+        return Stub(ComponentArtifactMetadata) {
+            getId() >> id
+        }
+    }
+}
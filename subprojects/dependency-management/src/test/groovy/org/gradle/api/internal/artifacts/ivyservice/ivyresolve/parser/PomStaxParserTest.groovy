@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import spock.lang.Specification
+
+import javax.xml.stream.XMLStreamException
+
+class PomStaxParserTest extends Specification {
+
+    def "reads text content of elements"() {
+        when:
+        def project = parse """<?xml version="1.0" encoding="UTF-8"?>
+<project>
+    <groupId>group-<!-- comment -->one</groupId>
+    <artifactId><![CDATA[artifact-one]]></artifactId>
+    <version>
+        1.0
+    </version>
+    <properties>
+        <copyright>&copy; someone&nbsp;else</copyright>
+        <empty/>
+    </properties>
+</project>
+"""
+
+        then:
+        project.name == 'project'
+        project.children*.name == ['groupId', 'artifactId', 'version', 'properties']
+        project.getFirstChild('groupId').text == 'group-one'
+        project.getFirstChild('artifactId').text == 'artifact-one'
+        project.getFirstChild('version').text == '\n        1.0\n    '
+        project.getFirstChild('properties').children*.name == ['copyright', 'empty']
+        project.getFirstChild('properties').getFirstChild('copyright').text == '\u00a9 someone\u00a0else'
+        project.getFirstChild('properties').getFirstChild('empty').text == ''
+        project.getFirstChild('missing') == null
+    }
+
+    def "skips elements which are not read from the project and its profiles"() {
+        when:
+        def project = parse """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <name>Test Artifact One</name>
+    <developers>
+        <developer><id>someone</id></developer>
+    </developers>
+    <build>
+        <plugins>
+            <plugin><groupId>group-two</groupId></plugin>
+        </plugins>
+    </build>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <exclusions>
+                <exclusion><groupId>group-three</groupId></exclusion>
+            </exclusions>
+        </dependency>
+    </dependencies>
+    <profiles>
+        <profile>
+            <id>profile-1</id>
+            <activation><activeByDefault>true</activeByDefault></activation>
+            <build><finalName>other</finalName></build>
+            <dependencies>
+                <dependency><groupId>group-four</groupId></dependency>
+            </dependencies>
+        </profile>
+    </profiles>
+</project>
+"""
+
+        then:
+        project.children*.name == ['groupId', 'dependencies', 'profiles']
+        def dependency = project.getFirstChild('dependencies').getFirstChild('dependency')
+        dependency.children*.name == ['groupId', 'artifactId', 'exclusions']
+        dependency.getFirstChild('exclusions').getFirstChild('exclusion').getFirstChild('groupId').text == 'group-three'
+        def profile = project.getFirstChild('profiles').getFirstChild('profile')
+        profile.children*.name == ['id', 'activation', 'dependencies']
+        profile.getFirstChild('activation').getFirstChild('activeByDefault').text == 'true'
+    }
+
+    def "uses qualified names for elements"() {
+        when:
+        def project = parse """
+<pom:project xmlns:pom="http://maven.apache.org/POM/4.0.0">
+    <pom:groupId>group-one</pom:groupId>
+</pom:project>
+"""
+
+        then:
+        project.name == 'pom:project'
+        project.children.empty
+    }
+
+    def "fails on malformed content after the root element"() {
+        when:
+        parse """
+<project>
+    <groupId>group-one</groupId>
+</project>
+<project>
+"""
+
+        then:
+        thrown(XMLStreamException)
+    }
+
+    private static PomElement parse(String pom) {
+        return PomStaxParser.parse(new ByteArrayInputStream(pom.getBytes("UTF-8")), "pom.xml")
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.ivyservice.CacheLayout
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.MetaDataParser
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer
+import org.gradle.api.internal.artifacts.repositories.metadata.IvyMutableModuleMetadataFactory
+import org.gradle.api.internal.artifacts.repositories.metadata.MavenMutableModuleMetadataFactory
+import org.gradle.api.internal.model.NamedObjectInstantiator
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.MutableIvyModuleResolveMetadata
+import org.gradle.internal.component.external.model.MutableMavenModuleResolveMetadata
+import org.gradle.internal.hash.HashUtil
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.TestUtil
+import org.junit.Rule
+import spock.lang.Specification
+
+class ModuleMetadataSnapshotStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    final ImmutableModuleIdentifierFactory moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory()
+    final MavenMutableModuleMetadataFactory mavenMetadataFactory = new MavenMutableModuleMetadataFactory(moduleIdentifierFactory, TestUtil.attributesFactory(), TestUtil.objectInstantiator(), TestUtil.featurePreviews())
+    final IvyMutableModuleMetadataFactory ivyMetadataFactory = new IvyMutableModuleMetadataFactory(moduleIdentifierFactory, TestUtil.attributesFactory())
+    final ModuleMetadataSerializer serializer = new ModuleMetadataSerializer(new AttributeContainerSerializer(TestUtil.attributesFactory(), NamedObjectInstantiator.INSTANCE), mavenMetadataFactory, ivyMetadataFactory)
+
+    final context = Stub(DescriptorParseContext)
+    final parser = Mock(MetaDataParser)
+    final snapshotDir = tmpDir.file("snapshot")
+    final descriptor = tmpDir.file("ivy.xml") << "<ivy-module/>"
+    final metadata = ivyMetadataFactory.create(DefaultModuleComponentIdentifier.newId("org", "module", "1.0"))
+
+    def "does not decorate parser when no snapshot directory is given"() {
+        def store = new ModuleMetadataSnapshotStore(null, true, serializer, moduleIdentifierFactory)
+
+        expect:
+        store.decorate(parser, MutableIvyModuleResolveMetadata).is(parser)
+    }
+
+    def "uses metadata recorded for a descriptor instead of parsing it again"() {
+        def recording = new ModuleMetadataSnapshotStore(snapshotDir, true, serializer, moduleIdentifierFactory).decorate(parser, MutableIvyModuleResolveMetadata)
+
+        when:
+        def result = recording.parseMetaData(context, descriptor)
+
+        then:
+        1 * parser.parseMetaData(context, descriptor) >> metadata
+        result.is(metadata)
+        snapshotFile().isFile()
+
+        when:
+        def snapshot = new ModuleMetadataSnapshotStore(snapshotDir, false, serializer, moduleIdentifierFactory).decorate(parser, MutableIvyModuleResolveMetadata)
+        def fromSnapshot = snapshot.parseMetaData(context, descriptor)
+
+        then:
+        0 * parser._
+        fromSnapshot instanceof MutableIvyModuleResolveMetadata
+        fromSnapshot.id == metadata.id
+        fromSnapshot.status == metadata.status
+    }
+
+    def "parses descriptors that have changed since they were recorded"() {
+        def store = new ModuleMetadataSnapshotStore(snapshotDir, true, serializer, moduleIdentifierFactory)
+        store.put(HashUtil.sha1(descriptor), metadata)
+        descriptor << "<!-- changed -->"
+        def other = ivyMetadataFactory.create(DefaultModuleComponentIdentifier.newId("org", "module", "2.0"))
+
+        when:
+        def result = store.decorate(parser, MutableIvyModuleResolveMetadata).parseMetaData(context, descriptor)
+
+        then:
+        1 * parser.parseMetaData(context, descriptor) >> other
+        result.is(other)
+    }
+
+    def "does not add metadata to the snapshot unless recording"() {
+        def snapshot = new ModuleMetadataSnapshotStore(snapshotDir, false, serializer, moduleIdentifierFactory).decorate(parser, MutableIvyModuleResolveMetadata)
+
+        when:
+        snapshot.parseMetaData(context, descriptor)
+
+        then:
+        1 * parser.parseMetaData(context, descriptor) >> metadata
+        !snapshotFile().exists()
+    }
+
+    def "parses descriptor when snapshot entry cannot be read or has another type"() {
+        def store = new ModuleMetadataSnapshotStore(snapshotDir, false, serializer, moduleIdentifierFactory)
+        def mavenParser = Mock(MetaDataParser)
+        def mavenMetadata = mavenMetadataFactory.create(DefaultModuleComponentIdentifier.newId("org", "module", "1.0"))
+        new ModuleMetadataSnapshotStore(snapshotDir, true, serializer, moduleIdentifierFactory).put(HashUtil.sha1(descriptor), metadata)
+
+        when:
+        def result = store.decorate(mavenParser, MutableMavenModuleResolveMetadata).parseMetaData(context, descriptor)
+
+        then:
+        1 * mavenParser.parseMetaData(context, descriptor) >> mavenMetadata
+        result.is(mavenMetadata)
+
+        when:
+        snapshotFile().text = "broken"
+        result = store.decorate(parser, MutableIvyModuleResolveMetadata).parseMetaData(context, descriptor)
+
+        then:
+        1 * parser.parseMetaData(context, descriptor) >> metadata
+        result.is(metadata)
+    }
+
+    def "validating parses always use the parser"() {
+        def store = new ModuleMetadataSnapshotStore(snapshotDir, true, serializer, moduleIdentifierFactory)
+        store.put(HashUtil.sha1(descriptor), metadata)
+
+        when:
+        store.decorate(parser, MutableIvyModuleResolveMetadata).parseMetaData(context, descriptor, true)
+
+        then:
+        1 * parser.parseMetaData(context, descriptor, true) >> metadata
+    }
+
+    private File snapshotFile() {
+        def hash = HashUtil.sha1(descriptor).asZeroPaddedHexString(40)
+        return new File(CacheLayout.META_DATA.getPath(snapshotDir), "${hash.substring(0, 2)}/${hash}.bin")
+    }
+}
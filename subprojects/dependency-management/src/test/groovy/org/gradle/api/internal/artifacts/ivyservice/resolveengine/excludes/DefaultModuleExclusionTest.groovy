@@ -489,6 +489,21 @@ class DefaultModuleExclusionTest extends Specification {
         union3 == artifactSpec2
     }
 
+    def "union of specs with many exact matching exclude rules uses the common and most specific matching exclude rules"() {
+        def common = (1..50).collect { excludeRule("org", "common$it") }
+        def onlyOne = (1..50).collect { excludeRule("org", "one$it") }
+        def onlyTwo = (1..50).collect { excludeRule("other", "two$it") }
+        def spec1 = excludeAny((common + onlyOne + [excludeRule("other", "*")]) as Exclude[])
+        def spec2 = excludeAny((onlyTwo + common.reverse()) as Exclude[])
+        def expected = excludeAny((common + onlyTwo) as Exclude[])
+
+        expect:
+        union(spec1, spec2) == expected
+        union(spec2, spec1) == expected
+        union(spec1, excludeAny(onlyTwo as Exclude[])) == excludeAny(onlyTwo as Exclude[])
+        union(spec1, excludeAny((onlyTwo + [excludeRule("*", "*", "art")]) as Exclude[])) == excludeAny((onlyTwo + [excludeRule("*", "*", "art")]) as Exclude[])
+    }
+
     def "union of two specs with non-exact matching exclude rules is a union spec"() {
         def rule1 = excludeRule("org", "module")
         def rule2 = regexpExcludeRule("org", "module2")
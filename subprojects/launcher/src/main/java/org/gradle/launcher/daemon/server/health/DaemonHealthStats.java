@@ -17,6 +17,8 @@
 package org.gradle.launcher.daemon.server.health;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheStats;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.ManagedScheduledExecutor;
@@ -35,20 +37,28 @@ public class DaemonHealthStats implements Stoppable {
     private final ManagedScheduledExecutor scheduler;
     private final GarbageCollectionInfo gcInfo;
     private final GarbageCollectionMonitor gcMonitor;
+    private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
 
-    public DaemonHealthStats(DaemonRunningStats runningStats, ExecutorFactory executorFactory) {
+    public DaemonHealthStats(DaemonRunningStats runningStats, ExecutorFactory executorFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         this.runningStats = runningStats;
         this.scheduler = executorFactory.createScheduled("Daemon health stats", 1);
         this.gcInfo = new GarbageCollectionInfo();
         this.gcMonitor = new GarbageCollectionMonitor(scheduler);
+        this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
     }
 
     @VisibleForTesting
     DaemonHealthStats(DaemonRunningStats runningStats, GarbageCollectionInfo gcInfo, GarbageCollectionMonitor gcMonitor) {
+        this(runningStats, gcInfo, gcMonitor, null);
+    }
+
+    @VisibleForTesting
+    DaemonHealthStats(DaemonRunningStats runningStats, GarbageCollectionInfo gcInfo, GarbageCollectionMonitor gcMonitor, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         this.runningStats = runningStats;
         this.scheduler = null;
         this.gcInfo = gcInfo;
         this.gcMonitor = gcMonitor;
+        this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
     }
 
     @Override
@@ -93,12 +103,24 @@ public class DaemonHealthStats implements Stoppable {
             } else {
                 message += ", no major garbage collections";
             }
+            message += getInMemoryCacheInfo();
             message += "]";
             return message;
         } else {
-            return format("Starting %s build in daemon [uptime: %s, performance: %s%%]",
-                NumberUtil.ordinal(nextBuildNum), runningStats.getPrettyUpTime(), getCurrentPerformance());
+            return format("Starting %s build in daemon [uptime: %s, performance: %s%%%s]",
+                NumberUtil.ordinal(nextBuildNum), runningStats.getPrettyUpTime(), getCurrentPerformance(), getInMemoryCacheInfo());
+        }
+    }
+
+    private String getInMemoryCacheInfo() {
+        if (inMemoryCacheDecoratorFactory == null) {
+            return "";
+        }
+        CacheStats cacheStats = inMemoryCacheDecoratorFactory.getStatistics();
+        if (cacheStats.requestCount() == 0) {
+            return "";
         }
+        return format(", in-memory cache hit rate: %s%%, evicted entries: %s", NumberUtil.percentOf(cacheStats.hitCount(), cacheStats.requestCount()), cacheStats.evictionCount());
     }
 
     /**
@@ -16,6 +16,8 @@
 
 package org.gradle.launcher.daemon.server.health
 
+import com.google.common.cache.CacheStats
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory
 import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionInfo
 import org.gradle.launcher.daemon.server.health.gc.GarbageCollectionMonitor
@@ -76,4 +78,23 @@ class DaemonHealthStatsTest extends Specification {
         healthStats.healthInfo == "Starting 2nd build in daemon [uptime: 3 mins, performance: 98%, no major garbage collections]"
     }
 
+    def "reports in-memory cache statistics"() {
+        def inMemoryCacheDecoratorFactory = Stub(InMemoryCacheDecoratorFactory)
+        def healthStats = new DaemonHealthStats(runningStats, gcInfo, gcMonitor, inMemoryCacheDecoratorFactory)
+
+        when:
+        gcInfo.getCollectionTime() >> 25
+        runningStats.getBuildCount() >> 1
+        runningStats.getPrettyUpTime() >> "3 mins"
+        runningStats.getAllBuildsTime() >> 1000
+        gcMonitor.getTenuredStats() >> {
+            Stub(GarbageCollectionStats) {
+                getUsage() >> -1
+            }
+        }
+        inMemoryCacheDecoratorFactory.getStatistics() >> new CacheStats(75, 25, 0, 0, 0, 12)
+
+        then:
+        healthStats.healthInfo == "Starting 2nd build in daemon [uptime: 3 mins, performance: 98%, no major garbage collections, in-memory cache hit rate: 75%, evicted entries: 12]"
+    }
 }
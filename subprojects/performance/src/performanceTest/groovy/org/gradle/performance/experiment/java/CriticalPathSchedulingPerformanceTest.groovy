@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance.experiment.java
+
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.categories.PerformanceExperiment
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+import static org.gradle.performance.generator.JavaTestProject.LARGE_JAVA_MULTI_PROJECT
+import static org.gradle.performance.generator.JavaTestProject.MEDIUM_JAVA_MULTI_PROJECT_WITH_TEST_NG
+
+@Category(PerformanceExperiment)
+class CriticalPathSchedulingPerformanceTest extends AbstractCrossBuildPerformanceTest {
+
+    @Unroll
+    def "clean build on #testProject with 4 parallel workers and critical path scheduling"() {
+        when:
+        runner.testGroup = "parallel builds"
+        runner.buildSpec {
+            warmUpCount = warmUpRuns
+            invocationCount = runs
+            projectName(testProject.projectName).displayName("critical path scheduling").invocation {
+                tasksToRun("clean", "build").args("-Dorg.gradle.parallel=true", "--max-workers=4", "-Dorg.gradle.internal.tasks.critical-path-scheduling=true").gradleOpts("-Xms${testProject.daemonMemory}", "-Xmx${testProject.daemonMemory}")
+            }
+        }
+        runner.baseline {
+            warmUpCount = warmUpRuns
+            invocationCount = runs
+            projectName(testProject.projectName).displayName("default scheduling").invocation {
+                tasksToRun("clean", "build").args("-Dorg.gradle.parallel=true", "--max-workers=4").gradleOpts("-Xms${testProject.daemonMemory}", "-Xmx${testProject.daemonMemory}")
+            }
+        }
+
+        then:
+        runner.run()
+
+        where:
+        testProject                            | warmUpRuns | runs
+        LARGE_JAVA_MULTI_PROJECT               | 2          | 6
+        MEDIUM_JAVA_MULTI_PROJECT_WITH_TEST_NG | 2          | 6
+    }
+
+}
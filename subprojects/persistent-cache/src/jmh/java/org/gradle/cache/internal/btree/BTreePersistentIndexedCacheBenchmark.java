@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Random reads and writes against a {@link BTreePersistentIndexedCache}, using either the file backed or the memory mapped block store.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+@SuppressWarnings("Since15")
+public class BTreePersistentIndexedCacheBenchmark {
+    private static final int ENTRIES = 100000;
+
+    @Param({"false", "true"})
+    boolean memoryMapped;
+
+    File tempDir;
+    BTreePersistentIndexedCache<String, byte[]> cache;
+    Random random;
+    byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("btree-cache").toFile();
+        cache = new BTreePersistentIndexedCache<String, byte[]>(new File(tempDir, "cache.bin"), BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER, memoryMapped);
+        random = new Random(1234L);
+        value = new byte[64];
+        for (int i = 0; i < ENTRIES; i++) {
+            random.nextBytes(value);
+            cache.put(key(i), value.clone());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.close();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    private static String key(int i) {
+        return "/some/path/to/a/file/in/the/build/" + i;
+    }
+
+    @Benchmark
+    public void randomGet(Blackhole blackhole) {
+        blackhole.consume(cache.get(key(random.nextInt(ENTRIES))));
+    }
+
+    @Benchmark
+    public void randomPut() {
+        random.nextBytes(value);
+        cache.put(key(random.nextInt(ENTRIES)), value);
+    }
+}
@@ -21,12 +21,42 @@ import org.gradle.cache.AsyncCacheAccess;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Applies updates to the backing cache asynchronously.
+ *
+ * <p>Updates are collected in a lock free queue, rather than being submitted to the {@link AsyncCacheAccess} one by one. Only one task that writes all
+ * collected updates is submitted at a time, so a burst of updates from many threads results in a few large batches. Within a batch, only the last update
+ * for each key is written to the backing cache.</p>
+ */
 public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncCacheAccessDecoratedCache.class);
+
     private final AsyncCacheAccess asyncCacheAccess;
     private final MultiProcessSafePersistentIndexedCache<K, V> persistentCache;
+    private final Queue<PendingUpdate<K, V>> pendingUpdates = new ConcurrentLinkedQueue<PendingUpdate<K, V>>();
+    private final AtomicInteger pendingUpdateCount = new AtomicInteger();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final Runnable writePendingUpdates = new Runnable() {
+        @Override
+        public void run() {
+            writePendingUpdates();
+        }
+    };
 
     public AsyncCacheAccessDecoratedCache(AsyncCacheAccess asyncCacheAccess, MultiProcessSafePersistentIndexedCache<K, V> persistentCache) {
         this.asyncCacheAccess = asyncCacheAccess;
@@ -55,31 +85,78 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     }
 
     @Override
-    public void putLater(final K key, final V value, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    persistentCache.put(key, value);
-                } finally {
-                    completion.run();
-                }
-            }
-        });
+    public void putLater(K key, V value, Runnable completion) {
+        addPendingUpdate(new PendingUpdate<K, V>(key, value, false, completion));
     }
 
     @Override
-    public void removeLater(final K key, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
-            @Override
-            public void run() {
+    public void removeLater(K key, Runnable completion) {
+        addPendingUpdate(new PendingUpdate<K, V>(key, null, true, completion));
+    }
+
+    private void addPendingUpdate(PendingUpdate<K, V> update) {
+        pendingUpdates.add(update);
+        pendingUpdateCount.incrementAndGet();
+        // The write task resets the flag before it takes the pending updates, so it either sees this update or another write task is scheduled for it.
+        // Any read submitted after this point runs after that write task.
+        if (writeScheduled.compareAndSet(false, true)) {
+            asyncCacheAccess.enqueue(writePendingUpdates);
+        }
+    }
+
+    private void writePendingUpdates() {
+        writeScheduled.set(false);
+        long start = System.nanoTime();
+        List<Runnable> completions = new ArrayList<Runnable>();
+        Map<K, PendingUpdate<K, V>> latestUpdates = new LinkedHashMap<K, PendingUpdate<K, V>>();
+        PendingUpdate<K, V> update;
+        while ((update = pendingUpdates.poll()) != null) {
+            completions.add(update.completion);
+            // Keep the order in which the keys were last updated
+            latestUpdates.remove(update.key);
+            latestUpdates.put(update.key, update);
+        }
+        int pendingAfterBatch = pendingUpdateCount.addAndGet(-completions.size());
+
+        Throwable failure = null;
+        try {
+            for (PendingUpdate<K, V> latestUpdate : latestUpdates.values()) {
+                try {
+                    if (latestUpdate.removal) {
+                        persistentCache.remove(latestUpdate.key);
+                    } else {
+                        persistentCache.put(latestUpdate.key, latestUpdate.value);
+                    }
+                } catch (Throwable t) {
+                    if (failure == null) {
+                        failure = t;
+                    }
+                }
+            }
+        } finally {
+            for (Runnable completion : completions) {
                 try {
-                    persistentCache.remove(key);
-                } finally {
                     completion.run();
+                } catch (Throwable t) {
+                    if (failure == null) {
+                        failure = t;
+                    }
                 }
             }
-        });
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Wrote {} entries for {} updates to {} in {} ms, {} updates pending.", latestUpdates.size(), completions.size(), persistentCache, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), pendingAfterBatch);
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    /**
+     * Returns the number of updates that have been submitted, but have not been written to the backing cache yet.
+     */
+    public int getPendingUpdateCount() {
+        return pendingUpdateCount.get();
     }
 
     @Override
@@ -96,4 +173,18 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     public void beforeLockRelease(FileLock.State currentCacheState) {
         persistentCache.beforeLockRelease(currentCacheState);
     }
+
+    private static class PendingUpdate<K, V> {
+        final K key;
+        final V value;
+        final boolean removal;
+        final Runnable completion;
+
+        PendingUpdate(K key, @Nullable V value, boolean removal, Runnable completion) {
+            this.key = key;
+            this.value = value;
+            this.removal = removal;
+            this.completion = completion;
+        }
+    }
 }
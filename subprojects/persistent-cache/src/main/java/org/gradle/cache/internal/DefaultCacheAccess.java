@@ -286,7 +286,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
                 Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
                     public BTreePersistentIndexedCache<K, V> create() {
-                        return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                        return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer(), parameters.isMemoryMapped());
                     }
                 };
 
@@ -312,8 +312,8 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, boolean memoryMapped) {
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer, memoryMapped);
     }
 
     /**
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory mapped regions of the cache file, rather than seeking and reading
+ * the file for every block. Uses the same file format as {@link FileBackedBlockStore}, so the two can be used interchangeably for a given file.
+ *
+ * <p>The file is mapped in fixed size regions, with the last region covering only the current end of the file. Blocks appended to the
+ * end of the file are written through the file channel, and the last region is remapped the next time something beyond it is accessed.</p>
+ *
+ * <p>The mapped regions are only released once they are garbage collected, so this store should not be used on platforms that
+ * don't allow a mapped file to be truncated.</p>
+ */
+public class MemoryMappedBlockStore implements BlockStore {
+    private static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+    private final File cacheFile;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private final BlockOutputStream outputBuffer = new BlockOutputStream();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long mappedSize;
+    private long nextBlock;
+    private Factory factory;
+    private long currentFileSize;
+
+    public MemoryMappedBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MemoryMappedBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        unmap();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        unmap();
+        try {
+            file.setLength(0);
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    private void unmap() {
+        regions.clear();
+        mappedSize = 0;
+    }
+
+    /**
+     * Makes sure that the regions cover the file up to the given position, which must not be beyond the end of the file.
+     */
+    private void mapUpTo(long end) throws IOException {
+        if (end <= mappedSize) {
+            return;
+        }
+        // Drop the last region if it is only partially mapped, and map it again up to the current end of the file
+        int last = regions.size() - 1;
+        if (last >= 0 && regions.get(last).capacity() < regionSize) {
+            regions.remove(last);
+            mappedSize = (long) last * regionSize;
+        }
+        while (mappedSize < currentFileSize) {
+            long size = Math.min(regionSize, currentFileSize - mappedSize);
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, mappedSize, size));
+            mappedSize += size;
+        }
+    }
+
+    private ByteBuffer region(long pos) {
+        ByteBuffer region = regions.get((int) (pos / regionSize));
+        region.position((int) (pos % regionSize));
+        return region;
+    }
+
+    private void put(long pos, byte[] bytes, int offset, int length) throws IOException {
+        if (pos + length > mappedSize) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                pos += channel.write(buffer, pos);
+            }
+            return;
+        }
+        while (length > 0) {
+            ByteBuffer region = region(pos);
+            int count = Math.min(length, region.remaining());
+            region.put(bytes, offset, count);
+            pos += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            outputBuffer.reset();
+            DataOutputStream outputStream = new DataOutputStream(outputBuffer);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = outputStream.size();
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            outputStream.flush();
+
+            // Pad
+            if (currentFileSize < finalSize) {
+                file.setLength(finalSize);
+                currentFileSize = finalSize;
+            }
+            put(pos, outputBuffer.buffer(), 0, outputBuffer.size());
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            mapUpTo(currentFileSize);
+            MappedInputStream mappedInputStream = new MappedInputStream(pos);
+            DataInputStream inputStream = new DataInputStream(mappedInputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = mappedInputStream.getPos() - pos;
+            long count = inputStream.readInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MemoryMappedBlockStore.this));
+        }
+    }
+
+    /**
+     * Reads from the mapped regions, starting at a given position of the file.
+     */
+    private class MappedInputStream extends InputStream {
+        private long pos;
+
+        MappedInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        long getPos() {
+            return pos;
+        }
+
+        @Override
+        public int read() {
+            if (pos >= mappedSize) {
+                return -1;
+            }
+            return region(pos++).get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (pos >= mappedSize) {
+                return -1;
+            }
+            ByteBuffer region = region(pos);
+            int count = Math.min(length, region.remaining());
+            region.get(bytes, offset, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    private static class BlockOutputStream extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.cache.AsyncCacheAccess
+import org.gradle.cache.MultiProcessSafePersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class AsyncCacheAccessDecoratedCacheTest extends Specification {
+    def backingCache = Mock(MultiProcessSafePersistentIndexedCache)
+    def asyncCacheAccess = new QueueingCacheAccess()
+    def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+
+    def "submits a single write task for updates made before it runs"() {
+        def completion1 = Mock(Runnable)
+        def completion2 = Mock(Runnable)
+        def completion3 = Mock(Runnable)
+
+        when:
+        cache.putLater("a", "1", completion1)
+        cache.removeLater("b", completion2)
+        cache.putLater("c", "3", completion3)
+
+        then:
+        asyncCacheAccess.queue.size() == 1
+        cache.pendingUpdateCount == 3
+        0 * _
+
+        when:
+        asyncCacheAccess.runQueued()
+
+        then:
+        1 * backingCache.put("a", "1")
+        1 * backingCache.remove("b")
+        1 * backingCache.put("c", "3")
+
+        then:
+        1 * completion1.run()
+        1 * completion2.run()
+        1 * completion3.run()
+        0 * _
+
+        and:
+        cache.pendingUpdateCount == 0
+    }
+
+    def "only writes the last update for a key in a batch"() {
+        def completion1 = Mock(Runnable)
+        def completion2 = Mock(Runnable)
+        def completion3 = Mock(Runnable)
+
+        when:
+        cache.putLater("a", "1", completion1)
+        cache.putLater("a", "2", completion2)
+        cache.removeLater("a", completion3)
+        cache.putLater("b", "3", completion3)
+        cache.putLater("b", "4", completion3)
+        asyncCacheAccess.runQueued()
+
+        then:
+        1 * backingCache.remove("a")
+        1 * backingCache.put("b", "4")
+
+        then:
+        1 * completion1.run()
+        1 * completion2.run()
+        3 * completion3.run()
+        0 * _
+    }
+
+    def "submits another write task for updates made after the write task has started"() {
+        when:
+        cache.putLater("a", "1", {})
+        asyncCacheAccess.runQueued()
+        cache.putLater("b", "2", {})
+
+        then:
+        asyncCacheAccess.queue.size() == 1
+
+        when:
+        asyncCacheAccess.runQueued()
+
+        then:
+        1 * backingCache.put("b", "2")
+        0 * _
+    }
+
+    def "reads are submitted after pending updates"() {
+        when:
+        cache.putLater("a", "1", {})
+        def result = cache.get("a")
+
+        then:
+        1 * backingCache.put("a", "1")
+
+        then:
+        1 * backingCache.get("a") >> "1"
+        result == "1"
+    }
+
+    def "runs all completions and writes remaining updates when an update fails"() {
+        def completion1 = Mock(Runnable)
+        def completion2 = Mock(Runnable)
+        def failure = new RuntimeException("broken")
+
+        when:
+        cache.putLater("a", "1", completion1)
+        cache.putLater("b", "2", completion2)
+        asyncCacheAccess.runQueued()
+
+        then:
+        1 * backingCache.put("a", "1") >> { throw failure }
+        1 * backingCache.put("b", "2")
+
+        then:
+        1 * completion1.run()
+        1 * completion2.run()
+
+        and:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+
+    private static class QueueingCacheAccess implements AsyncCacheAccess {
+        final List<Runnable> queue = []
+
+        @Override
+        void enqueue(Runnable task) {
+            queue << task
+        }
+
+        @Override
+        def <T> T read(Factory<T> task) {
+            runQueued()
+            return task.create()
+        }
+
+        @Override
+        void flush() {
+            runQueued()
+        }
+
+        void runQueued() {
+            while (!queue.empty) {
+                queue.remove(0).run()
+            }
+        }
+    }
+}
@@ -52,8 +52,12 @@ public class BTreePersistentIndexedCacheTest {
         cacheFile = tmpDir.file("cache.bin");
     }
 
+    protected boolean isMemoryMapped() {
+        return false;
+    }
+
     private void createCache() {
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, isMemoryMapped());
     }
 
     private void verifyAndCloseCache() {
@@ -98,7 +102,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void handlesUpdatesWhenBlockSizeDecreases() {
-        BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
+        BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100, isMemoryMapped());
 
         List<Integer> values = Arrays.asList(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
         Map<Integer, List<Integer>> updated = new LinkedHashMap<Integer, List<Integer>>();
@@ -134,7 +138,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void handlesUpdatesWhenBlockSizeIncreases() {
-        BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
+        BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100, isMemoryMapped());
 
         List<Integer> values = Arrays.asList(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
         Map<Integer, List<Integer>> updated = new LinkedHashMap<Integer, List<Integer>>();
@@ -205,7 +209,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void reusesEmptySpaceWhenPuttingEntries() {
-        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100, isMemoryMapped());
 
         cache.put("key_1", "abcd");
         cache.put("key_2", "abcd");
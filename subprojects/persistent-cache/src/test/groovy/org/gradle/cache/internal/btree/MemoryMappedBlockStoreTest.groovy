@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MemoryMappedBlockStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+    def factory = { type -> new TestPayload() } as BlockStore.Factory
+
+    def "reads blocks that span several regions"() {
+        def store = new MemoryMappedBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+
+        when:
+        def pointers = (0..9).collect { write(store, "value $it " + ("x" * it * 7)) }
+
+        then:
+        pointers.withIndex().every { BlockPointer pos, int i -> store.read(pos, TestPayload).value == "value $i " + ("x" * i * 7) }
+
+        when:
+        def rewritten = store.read(pointers[3], TestPayload)
+        rewritten.value = "changed"
+        store.write(rewritten)
+        def appended = write(store, "appended")
+
+        then:
+        store.read(pointers[3], TestPayload).value == "changed"
+        store.read(appended, TestPayload).value == "appended"
+        store.read(pointers[9], TestPayload).value == "value 9 " + ("x" * 63)
+
+        cleanup:
+        store.close()
+    }
+
+    def "uses the same file format as the file backed store"() {
+        def store = new MemoryMappedBlockStore(cacheFile, 32)
+        store.open({} as Runnable, factory)
+        def first = write(store, "first")
+        def second = write(store, "second")
+        store.close()
+
+        when:
+        def fileBackedStore = new FileBackedBlockStore(cacheFile)
+        fileBackedStore.open({} as Runnable, factory)
+        def third = write(fileBackedStore, "third")
+
+        then:
+        fileBackedStore.read(first, TestPayload).value == "first"
+        fileBackedStore.read(second, TestPayload).value == "second"
+
+        when:
+        fileBackedStore.close()
+        store = new MemoryMappedBlockStore(cacheFile, 32)
+        store.open({} as Runnable, factory)
+
+        then:
+        store.read(first, TestPayload).value == "first"
+        store.read(third, TestPayload).value == "third"
+
+        cleanup:
+        store.close()
+    }
+
+    def "detects corrupted blocks"() {
+        def store = new MemoryMappedBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+        def pos = write(store, "value")
+
+        when:
+        store.read(BlockPointer.pos(pos.pos + 1), TestPayload)
+
+        then:
+        thrown CorruptedCacheException
+
+        cleanup:
+        store.close()
+    }
+
+    def "can clear and reuse the store"() {
+        def store = new MemoryMappedBlockStore(cacheFile, 16)
+        store.open({} as Runnable, factory)
+        write(store, "some value that spans regions")
+
+        when:
+        store.clear()
+        def pos = write(store, "new")
+
+        then:
+        pos.pos == 0
+        store.read(pos, TestPayload).value == "new"
+        cacheFile.length() == pos.pos + 9 + new TestPayload(value: "new").size
+
+        cleanup:
+        store.close()
+    }
+
+    private static BlockPointer write(BlockStore store, String value) {
+        def payload = new TestPayload(value: value)
+        store.attach(payload)
+        store.write(payload)
+        return payload.pos
+    }
+
+    static class TestPayload extends BlockPayload {
+        String value
+
+        @Override
+        protected int getSize() {
+            return 2 + value.length()
+        }
+
+        @Override
+        protected byte getType() {
+            return 0x7f
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            value = inputStream.readUTF()
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value)
+        }
+    }
+}